@@ -0,0 +1,136 @@
+package benchmarks;
+
+import java.awt.Dimension;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+import simulation.Assembly;
+import simulation.GravityForce;
+import simulation.Model;
+import simulation.ViscosityForce;
+
+
+/**
+ * Square grids of masses joined by springs, with a muscle here and there
+ * and the top row partly fixed, for benchmarks to run on.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public final class Assemblies {
+    public static final double SPACING = 3;
+    public static final double REST_LENGTH = 3;
+    public static final double K = 0.5;
+    // every this many masses along the top row is fixed
+    private static final int FIXED_EVERY = 10;
+    // every this many cells has a diagonal muscle
+    private static final int MUSCLE_EVERY = 7;
+    private static final double MARGIN = 20;
+    // environment of the model, as the defaults of an environment file
+    private static final double GRAVITY_ANGLE = 90;
+    private static final double GRAVITY_MAGNITUDE = 10;
+    private static final double VISCOSITY = 0.02;
+
+
+    private Assemblies () {
+        // does not make sense to construct this class
+    }
+
+    /**
+     * Returns a grid of at least the given number of masses, placed
+     * slightly off the lattice the same way every time.
+     */
+    public static Assembly grid (int masses) {
+        int side = (int) Math.ceil(Math.sqrt(masses));
+        Random random = new Random(1);
+        Assembly result = new Assembly(side * side, side * side * 2);
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                double mass = (i == 0 && j % FIXED_EVERY == 0) ? -1 : 1;
+                result.addMass(i * side + j, MARGIN + j * SPACING + random.nextDouble(),
+                               MARGIN + i * SPACING + random.nextDouble(), mass);
+            }
+        }
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                int k = i * side + j;
+                if (j + 1 < side) {
+                    result.addSpring(k, k + 1, REST_LENGTH, K, 0);
+                }
+                if (i + 1 < side) {
+                    result.addSpring(k, k + side, REST_LENGTH, K, 0);
+                }
+                if (i + 1 < side && j + 1 < side && (i + j) % MUSCLE_EVERY == 0) {
+                    result.addMuscle(k, k + side + 1, REST_LENGTH * Math.sqrt(2), K * 0.6, 0.2, 0);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a model of a grid of at least the given number of masses,
+     * under gravity and viscosity, big enough to hold it.
+     */
+    public static Model model (int masses) {
+        int side = (int) Math.ceil(Math.sqrt(masses));
+        int size = (int) (2 * MARGIN + side * SPACING * 2);
+        Model result = new Model(new Dimension(size, size));
+        result.add(grid(masses));
+        result.reorder();
+        addEnvironment(result);
+        return result;
+    }
+
+    /**
+     * Adds the gravity and viscosity every benchmark model runs under to the
+     * given model.
+     */
+    public static void addEnvironment (Model model) {
+        model.add(new GravityForce(GRAVITY_ANGLE, GRAVITY_MAGNITUDE));
+        model.add(new ViscosityForce(VISCOSITY));
+    }
+
+    /**
+     * Writes a grid of at least the given number of masses to a temporary
+     * data file, deleted when the benchmark ends.
+     */
+    public static File textFile (int masses) throws IOException {
+        int side = (int) Math.ceil(Math.sqrt(masses));
+        Random random = new Random(1);
+        File result = File.createTempFile("grid", ".xsp");
+        result.deleteOnExit();
+        PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(result)));
+        try {
+            for (int i = 0; i < side; i++) {
+                for (int j = 0; j < side; j++) {
+                    double mass = (i == 0 && j % FIXED_EVERY == 0) ? -1 : 1;
+                    out.printf("mass %d %f %f %f%n", i * side + j,
+                               MARGIN + j * SPACING + random.nextDouble(),
+                               MARGIN + i * SPACING + random.nextDouble(), mass);
+                }
+            }
+            for (int i = 0; i < side; i++) {
+                for (int j = 0; j < side; j++) {
+                    int k = i * side + j;
+                    if (j + 1 < side) {
+                        out.printf("spring %d %d %f %f%n", k, k + 1, REST_LENGTH, K);
+                    }
+                    if (i + 1 < side) {
+                        out.printf("spring %d %d %f %f%n", k, k + side, REST_LENGTH, K);
+                    }
+                    if (i + 1 < side && j + 1 < side && (i + j) % MUSCLE_EVERY == 0) {
+                        out.printf("muscle %d %d %f %f %f%n", k, k + side + 1,
+                                   REST_LENGTH * Math.sqrt(2), K * 0.6, 0.2);
+                    }
+                }
+            }
+        }
+        finally {
+            out.close();
+        }
+        return result;
+    }
+}
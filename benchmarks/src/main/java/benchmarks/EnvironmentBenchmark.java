@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulation.CenterMassForce;
+import simulation.Environment;
+import simulation.GravityForce;
+import simulation.Model;
+import simulation.MutualAttractionForce;
+import simulation.ParticleStore;
+import simulation.ViscosityForce;
+import simulation.WallRepulsionForce;
+
+
+/**
+ * Environment.applyForce of each kind of environment force, applied to
+ * every mass of a grid.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EnvironmentBenchmark {
+    @Param({ "gravity", "viscosity", "centermass", "wall", "mutual" })
+    private String myKind;
+    @Param({ "10000" })
+    private int myMassCount;
+
+    private Environment myForce;
+    private ParticleStore myParticles;
+
+    @Setup
+    public void setUp () {
+        Model model = Assemblies.model(myMassCount);
+        model.updateBounds();
+        myParticles = model.getParticles();
+        if (myKind.equals("gravity")) {
+            myForce = new GravityForce(90, 10);
+        }
+        else if (myKind.equals("viscosity")) {
+            myForce = new ViscosityForce(0.02);
+        }
+        else if (myKind.equals("centermass")) {
+            myForce = new CenterMassForce(10, 2);
+        }
+        else if (myKind.equals("wall")) {
+            myForce = new WallRepulsionForce(1, WallRepulsionForce.DOWN_DIRECTION, 10, 2);
+        }
+        else {
+            myForce = new MutualAttractionForce(1);
+        }
+    }
+
+    @Benchmark
+    public ParticleStore applyForce () {
+        myForce.applyForce(myParticles);
+        return myParticles;
+    }
+}
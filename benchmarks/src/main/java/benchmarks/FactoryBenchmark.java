@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulation.Assembly;
+import simulation.AssemblyFile;
+import simulation.Factory;
+
+
+/**
+ * Reading assemblies: text data files with one thread and with one per
+ * processor, and the binary format. Divide the file size by the time per
+ * operation for throughput.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FactoryBenchmark {
+    @Param({ "10000", "100000" })
+    private int myMassCount;
+
+    private File myText;
+    private File myBinary;
+    private Factory mySingleThreaded;
+    private Factory myMultiThreaded;
+
+    @Setup
+    public void setUp () throws IOException {
+        myText = Assemblies.textFile(myMassCount);
+        mySingleThreaded = new Factory();
+        mySingleThreaded.setThreadCount(1);
+        myMultiThreaded = new Factory();
+        myBinary = File.createTempFile("grid", ".xsb");
+        myBinary.deleteOnExit();
+        AssemblyFile.write(mySingleThreaded.readAssembly(myText), myBinary);
+    }
+
+    @Benchmark
+    public Assembly readText () throws IOException {
+        return mySingleThreaded.readAssembly(myText);
+    }
+
+    @Benchmark
+    public Assembly readTextInParallel () throws IOException {
+        return myMultiThreaded.readAssembly(myText);
+    }
+
+    @Benchmark
+    public Assembly readBinary () throws IOException {
+        return AssemblyFile.read(myBinary);
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulation.Integrator;
+import simulation.Model;
+
+
+/**
+ * One physics step of a grid with each integrator. Moving the masses is
+ * done by the integrator for all masses at once, so this stands in for
+ * the per mass Mass.update the simulation used to have.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IntegratorBenchmark {
+    @Param({ Integrator.SYMPLECTIC_EULER, Integrator.VELOCITY_VERLET, Integrator.RUNGE_KUTTA,
+             Integrator.IMPLICIT_EULER })
+    private String myIntegrator;
+    @Param({ "10000" })
+    private int myMassCount;
+
+    private Model myModel;
+
+    @Setup
+    public void setUp () {
+        myModel = Assemblies.model(myMassCount);
+        myModel.setIntegrator(Integrator.forName(myIntegrator));
+    }
+
+    @Benchmark
+    public Model step () {
+        myModel.step(myModel.getTimeStep());
+        return myModel;
+    }
+}
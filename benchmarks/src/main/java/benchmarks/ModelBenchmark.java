@@ -0,0 +1,46 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulation.Model;
+
+
+/**
+ * A full Model.update of one time step, springs, muscles, environment and
+ * integrator included, on grids of a thousand to a million masses.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class ModelBenchmark {
+    @Param({ "1000", "10000", "100000", "1000000" })
+    private int myMassCount;
+
+    private Model myModel;
+
+    @Setup
+    public void setUp () {
+        myModel = Assemblies.model(myMassCount);
+    }
+
+    @Benchmark
+    public Model update () {
+        myModel.update(myModel.getTimeStep());
+        return myModel;
+    }
+}
@@ -0,0 +1,76 @@
+package benchmarks;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulation.Integrator;
+import simulation.Mass;
+import simulation.Model;
+import simulation.Muscle;
+import simulation.Spring;
+
+
+/**
+ * Spring.update and Muscle.update on a chain of masses, timed per spring.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpringBenchmark {
+    private static final int SPRINGS = 1000;
+    private static final Dimension BOUNDS = new Dimension(4000, 600);
+
+    @Param({ "spring", "muscle" })
+    private String myKind;
+    @Param({ "0", "0.1" })
+    private double myDamping;
+
+    private List<Spring> mySprings;
+
+    @Setup
+    public void setUp () {
+        Model model = new Model(BOUNDS);
+        mySprings = new ArrayList<Spring>();
+        Mass previous = null;
+        for (int k = 0; k <= SPRINGS; k++) {
+            Mass mass = new Mass(k * Assemblies.SPACING, BOUNDS.height / 2 + k % 2, 1);
+            model.add(mass);
+            if (previous != null) {
+                Spring spring = myKind.equals("muscle") ?
+                        new Muscle(previous, mass, Assemblies.REST_LENGTH, Assemblies.K, 0.2,
+                                   myDamping) :
+                        new Spring(previous, mass, Assemblies.REST_LENGTH, Assemblies.K,
+                                   myDamping);
+                model.add(spring);
+                mySprings.add(spring);
+            }
+            previous = mass;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SPRINGS)
+    public void update () {
+        for (Spring s : mySprings) {
+            s.update(Integrator.DEFAULT_TIME_STEP, BOUNDS);
+        }
+    }
+}
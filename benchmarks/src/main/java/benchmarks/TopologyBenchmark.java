@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulation.AssemblyGenerator;
+import simulation.Model;
+
+
+/**
+ * A full Model.update of one time step on each generated topology, which
+ * differ in how many springs each mass has and how far apart in memory the
+ * ends of a spring are.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class TopologyBenchmark {
+    // same assembly every run
+    private static final long SEED = 1;
+    private static final double FIXED_FRACTION = 0.01;
+
+    @Param({ AssemblyGenerator.RECTANGULAR, AssemblyGenerator.TRIANGULAR,
+             AssemblyGenerator.CHAIN, AssemblyGenerator.RANDOM, AssemblyGenerator.WALKERS })
+    private String myTopology;
+
+    @Param({ "10000", "100000" })
+    private int myMassCount;
+
+    private Model myModel;
+
+    @Setup
+    public void setUp () {
+        AssemblyGenerator generator = new AssemblyGenerator(SEED);
+        generator.setFixedFraction(FIXED_FRACTION);
+        myModel = generator.generateModel(myTopology, myMassCount);
+        Assemblies.addEnvironment(myModel);
+    }
+
+    @Benchmark
+    public Model update () {
+        myModel.update(myModel.getTimeStep());
+        return myModel;
+    }
+}
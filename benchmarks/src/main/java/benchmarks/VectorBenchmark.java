@@ -0,0 +1,48 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.Vector;
+
+
+/**
+ * Adding polar vectors and reading their components.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorBenchmark {
+    private Vector myTotal;
+    private Vector myOther;
+
+    @Setup
+    public void setUp () {
+        myTotal = new Vector(30, 2);
+        myOther = new Vector(75, 0.5);
+    }
+
+    @Benchmark
+    public Vector sum () {
+        myTotal.sum(myOther);
+        return myTotal;
+    }
+
+    @Benchmark
+    public double getXChange () {
+        return myOther.getXChange();
+    }
+}
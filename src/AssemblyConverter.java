@@ -0,0 +1,37 @@
+import java.io.File;
+import java.io.IOException;
+import simulation.Assembly;
+import simulation.AssemblyFile;
+import simulation.Factory;
+
+
+/**
+ * Converts a text assembly file into the binary format read by AssemblyFile,
+ * which loads much faster.
+ *
+ * Usage: AssemblyConverter input.xsp output
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class AssemblyConverter {
+    public static final String USAGE = "usage: AssemblyConverter input.xsp output";
+
+
+    private AssemblyConverter () {
+        // does not make sense to construct this class
+    }
+
+    /**
+     * main --- where the program starts
+     */
+    public static void main (String args[]) throws IOException {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        Assembly assembly = new Factory().readAssembly(new File(args[0]));
+        AssemblyFile.write(assembly, new File(args[1]));
+        System.out.printf("wrote %d masses and %d springs to %s%n",
+                          assembly.getMassCount(), assembly.getSpringCount(), args[1]);
+    }
+}
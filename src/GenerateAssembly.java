@@ -0,0 +1,50 @@
+import java.io.File;
+import java.io.IOException;
+import simulation.Assembly;
+import simulation.AssemblyGenerator;
+
+
+/**
+ * Writes a generated assembly to a text data file, for testing the
+ * simulation at scale.
+ *
+ * Usage: GenerateAssembly topology masses output [seed [minK maxK [fixed]]]
+ *
+ * where topology is rectangular, triangular, chain, random or walkers, minK
+ * and maxK bound the stiffness of the springs and fixed is the fraction of
+ * masses that never move. The same arguments always write the same file.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class GenerateAssembly {
+    public static final String USAGE =
+            "usage: GenerateAssembly topology masses output [seed [minK maxK [fixed]]]";
+    public static final long DEFAULT_SEED = 1;
+
+
+    private GenerateAssembly () {
+        // does not make sense to construct this class
+    }
+
+    /**
+     * main --- where the program starts
+     */
+    public static void main (String args[]) throws IOException {
+        if (args.length < 3) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        long seed = (args.length > 3) ? Long.parseLong(args[3]) : DEFAULT_SEED;
+        AssemblyGenerator generator = new AssemblyGenerator(seed);
+        if (args.length > 5) {
+            generator.setStiffness(Double.parseDouble(args[4]), Double.parseDouble(args[5]));
+        }
+        if (args.length > 6) {
+            generator.setFixedFraction(Double.parseDouble(args[6]));
+        }
+        Assembly assembly = generator.generate(args[0], Integer.parseInt(args[1]));
+        assembly.writeText(new File(args[2]));
+        System.out.printf("wrote %d masses and %d springs to %s%n",
+                          assembly.getMassCount(), assembly.getSpringCount(), args[2]);
+    }
+}
@@ -0,0 +1,156 @@
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import simulation.Checkpoint;
+import simulation.CheckpointWriter;
+import simulation.Factory;
+import simulation.Model;
+import simulation.ParticleStore;
+import simulation.TrajectoryRecorder;
+
+
+/**
+ * Runs a simulation without a display, as fast as possible, and reports
+ * the final state of every mass and how long the run took. Steps are of the
+ * model's fixed time step, which may be set in the environment file.
+ *
+ * Usage: Headless assembly environment width height steps [output]
+ *
+ * The number of threads used for spring forces and for reading the assembly
+ * can be set with the springies.threads system property.
+ *
+ * Setting the springies.checkpoint property to a file name writes a
+ * checkpoint there every springies.checkpointSteps steps and at the end. A
+ * checkpoint given as the assembly resumes that run exactly, with its own
+ * environment and size, and the environment argument is ignored.
+ *
+ * Setting the springies.trajectory property to a file name records the
+ * positions of every mass there every springies.trajectorySteps steps. By
+ * default every frame is written, however long the simulation waits;
+ * setting springies.trajectoryPolicy to DROP skips frames instead.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class Headless {
+    public static final String THREADS_PROPERTY = "springies.threads";
+    public static final String CHECKPOINT_PROPERTY = "springies.checkpoint";
+    public static final String CHECKPOINT_STEPS_PROPERTY = "springies.checkpointSteps";
+    public static final int DEFAULT_CHECKPOINT_STEPS = 10000;
+    public static final String TRAJECTORY_PROPERTY = "springies.trajectory";
+    public static final String TRAJECTORY_STEPS_PROPERTY = "springies.trajectorySteps";
+    public static final String TRAJECTORY_POLICY_PROPERTY = "springies.trajectoryPolicy";
+    public static final int DEFAULT_TRAJECTORY_STEPS = 10;
+    public static final String USAGE =
+            "usage: Headless assembly environment width height steps [output]";
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+
+    private Headless () {
+        // does not make sense to construct this class
+    }
+
+    /**
+     * main --- where the program starts
+     */
+    public static void main (String args[]) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length < 5) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        File assembly = existingFile(args[0]);
+        Dimension bounds = new Dimension(Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        int steps = Integer.parseInt(args[4]);
+
+        Model model = new Model(bounds);
+        Integer threads = Integer.getInteger(THREADS_PROPERTY);
+        if (threads != null) {
+            model.setThreadCount(threads);
+        }
+        Factory factory = new Factory();
+        if (threads != null) {
+            factory.setThreadCount(threads);
+        }
+        if (Checkpoint.isCheckpoint(assembly)) {
+            model.restore(Checkpoint.read(assembly));
+        }
+        else {
+            File environment = existingFile(args[1]);
+            factory.loadModel(model, assembly);
+            factory.loadEnvironment(model, environment);
+        }
+        String checkpointName = System.getProperty(CHECKPOINT_PROPERTY);
+        CheckpointWriter checkpoints = null;
+        int checkpointSteps = Integer.getInteger(CHECKPOINT_STEPS_PROPERTY,
+                                                 DEFAULT_CHECKPOINT_STEPS);
+        if (checkpointName != null) {
+            checkpoints = new CheckpointWriter();
+        }
+        String trajectoryName = System.getProperty(TRAJECTORY_PROPERTY);
+        TrajectoryRecorder recorder = null;
+        if (trajectoryName != null) {
+            String policy = System.getProperty(TRAJECTORY_POLICY_PROPERTY, "BLOCK");
+            recorder = new TrajectoryRecorder(new File(trajectoryName),
+                                              Integer.getInteger(TRAJECTORY_STEPS_PROPERTY,
+                                                                 DEFAULT_TRAJECTORY_STEPS),
+                                              TrajectoryRecorder.Backpressure.valueOf(
+                                                      policy.toUpperCase()));
+            model.setRecorder(recorder);
+        }
+
+        long start = System.nanoTime();
+        for (int k = 0; k < steps; k++) {
+            model.step(model.getTimeStep());
+            if (checkpoints != null && (k + 1) % checkpointSteps == 0 && k + 1 < steps) {
+                checkpoints.write(model.saveCheckpoint(), new File(checkpointName));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+        if (checkpoints != null) {
+            checkpoints.write(model.saveCheckpoint(), new File(checkpointName));
+            checkpoints.shutdown();
+        }
+        if (recorder != null) {
+            model.setRecorder(null);
+            recorder.close();
+            if (recorder.getDroppedFrames() > 0) {
+                System.err.println("dropped " + recorder.getDroppedFrames() + " frames");
+            }
+        }
+
+        PrintStream out = (args.length > 5) ? new PrintStream(new File(args[5])) : System.out;
+        writeResults(out, model, steps, seconds);
+        out.flush();
+        if (out != System.out) {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes timing, followed by one line per mass: id x y vx vy
+     */
+    private static void writeResults (PrintStream out, Model model, int steps, double seconds) {
+        ParticleStore particles = model.getParticles();
+        out.printf("# masses %d springs %d%n", particles.size(), model.getSpringCount());
+        out.printf("# integrator %s time step %f%n",
+                   model.getIntegrator().getName(), model.getTimeStep());
+        out.printf("# steps %d seconds %.6f steps/second %.1f%n",
+                   steps, seconds, steps / seconds);
+        for (int k = 0; k < particles.size(); k++) {
+            out.printf("%d %f %f %f %f%n", particles.getId(k), particles.getX(k), particles.getY(k),
+                       particles.getVelocityX(k), particles.getVelocityY(k));
+        }
+    }
+
+    private static File existingFile (String name) {
+        File file = new File(name);
+        if (!file.isFile()) {
+            System.err.println("cannot read " + name);
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        return file;
+    }
+}
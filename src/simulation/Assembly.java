@@ -0,0 +1,265 @@
+package simulation;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+
+/**
+ * Masses, springs and muscles of an assembly held as packed primitive arrays,
+ * ready to be added to a Model in one go.
+ *
+ * Masses are numbered in the order they were added. Springs and muscles share
+ * one list, kept in the order they were added, and refer to their masses by
+ * that number rather than by the ID the masses have in a data file.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class Assembly {
+    // flags of each spring
+    static final byte MUSCLE_FLAG = 1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int myMassCount;
+    private int[] myIds;
+    private double[] myX;
+    private double[] myY;
+    // mass as kept in a ParticleStore: never negative, and ignored when fixed
+    private double[] myMass;
+    private boolean[] myFixed;
+
+    private int mySpringCount;
+    private int[] mySpringStart;
+    private int[] mySpringEnd;
+    private double[] myLength;
+    private double[] myK;
+    private double[] myDamping;
+    private double[] myAmplitude;
+    private byte[] mySpringFlags;
+
+    /**
+     * Create an empty assembly.
+     */
+    public Assembly () {
+        this(DEFAULT_CAPACITY, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty assembly with room for the given number of masses and
+     * springs.
+     */
+    public Assembly (int massCapacity, int springCapacity) {
+        int masses = Math.max(1, massCapacity);
+        myIds = new int[masses];
+        myX = new double[masses];
+        myY = new double[masses];
+        myMass = new double[masses];
+        myFixed = new boolean[masses];
+        int springs = Math.max(1, springCapacity);
+        mySpringStart = new int[springs];
+        mySpringEnd = new int[springs];
+        myLength = new double[springs];
+        myK = new double[springs];
+        myDamping = new double[springs];
+        myAmplitude = new double[springs];
+        mySpringFlags = new byte[springs];
+    }
+
+    /**
+     * Adds a mass as written in a data file, where a mass that is not
+     * positive marks a mass that never moves.
+     *
+     * @return number of the new mass in this assembly
+     */
+    public int addMass (int id, double x, double y, double mass) {
+        if (mass > 0) { return addMass(id, x, y, mass, false); }
+        return addMass(id, x, y, -mass, true);
+    }
+
+    /**
+     * Adds a mass.
+     *
+     * @param id : ID of the mass in the file it was loaded from
+     * @param mass : mass, ignored if the mass is fixed
+     * @param fixed : true if the mass should never move
+     * @return number of the new mass in this assembly
+     */
+    public int addMass (int id, double x, double y, double mass, boolean fixed) {
+        if (myMassCount == myX.length) {
+            growMasses(myMassCount * 2);
+        }
+        int index = myMassCount++;
+        myIds[index] = id;
+        myX[index] = x;
+        myY[index] = y;
+        myMass[index] = mass;
+        myFixed[index] = fixed;
+        return index;
+    }
+
+    /**
+     * Adds a spring between the masses with the given numbers.
+     */
+    public void addSpring (int start, int end, double length, double k, double damping) {
+        addSpring(start, end, length, k, damping, 0, (byte) 0);
+    }
+
+    /**
+     * Adds a muscle between the masses with the given numbers.
+     */
+    public void addMuscle (int start, int end, double length, double k, double amplitude,
+                           double damping) {
+        addSpring(start, end, length, k, damping, amplitude, MUSCLE_FLAG);
+    }
+
+    /**
+     * @return number of masses in this assembly
+     */
+    public int getMassCount () {
+        return myMassCount;
+    }
+
+    /**
+     * @return number of springs and muscles in this assembly
+     */
+    public int getSpringCount () {
+        return mySpringCount;
+    }
+
+    /**
+     * Writes this assembly as a text data file, naming masses by ID. Numbers
+     * are written in full, so reading the file back gives exactly this
+     * assembly.
+     */
+    public void writeText (File file) throws IOException {
+        Writer out = new BufferedWriter(new FileWriter(file), 1 << 16);
+        try {
+            StringBuilder line = new StringBuilder();
+            for (int k = 0; k < myMassCount; k++) {
+                line.setLength(0);
+                line.append("mass ").append(myIds[k]).append(' ').append(myX[k]).append(' ')
+                    .append(myY[k]).append(' ').append(myFixed[k] ? -myMass[k] : myMass[k])
+                    .append('\n');
+                out.append(line);
+            }
+            for (int k = 0; k < mySpringCount; k++) {
+                boolean isMuscle = (mySpringFlags[k] & MUSCLE_FLAG) != 0;
+                line.setLength(0);
+                line.append(isMuscle ? "muscle " : "spring ").append(myIds[mySpringStart[k]])
+                    .append(' ').append(myIds[mySpringEnd[k]]).append(' ').append(myLength[k])
+                    .append(' ').append(myK[k]);
+                if (isMuscle) {
+                    line.append(' ').append(myAmplitude[k]);
+                }
+                if (myDamping[k] != 0) {
+                    line.append(' ').append(myDamping[k]);
+                }
+                out.append(line.append('\n'));
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    // Arrays backing this assembly; only the first getMassCount() or
+    // getSpringCount() entries are in use.
+
+    int[] getIds () {
+        return myIds;
+    }
+
+    double[] getX () {
+        return myX;
+    }
+
+    double[] getY () {
+        return myY;
+    }
+
+    double[] getMass () {
+        return myMass;
+    }
+
+    boolean[] getFixed () {
+        return myFixed;
+    }
+
+    int[] getSpringStart () {
+        return mySpringStart;
+    }
+
+    int[] getSpringEnd () {
+        return mySpringEnd;
+    }
+
+    double[] getLength () {
+        return myLength;
+    }
+
+    double[] getK () {
+        return myK;
+    }
+
+    double[] getDamping () {
+        return myDamping;
+    }
+
+    double[] getAmplitude () {
+        return myAmplitude;
+    }
+
+    byte[] getSpringFlags () {
+        return mySpringFlags;
+    }
+
+    /**
+     * Makes room for exactly the given number of masses and springs, which
+     * become the counts of this assembly, so the arrays can be filled in bulk.
+     */
+    void setCounts (int massCount, int springCount) {
+        growMasses(massCount);
+        growSprings(springCount);
+        myMassCount = massCount;
+        mySpringCount = springCount;
+    }
+
+    private void addSpring (int start, int end, double length, double k, double damping,
+                            double amplitude, byte flags) {
+        if (mySpringCount == mySpringStart.length) {
+            growSprings(mySpringCount * 2);
+        }
+        int index = mySpringCount++;
+        mySpringStart[index] = start;
+        mySpringEnd[index] = end;
+        myLength[index] = length;
+        myK[index] = k;
+        myDamping[index] = damping;
+        myAmplitude[index] = amplitude;
+        mySpringFlags[index] = flags;
+    }
+
+    private void growMasses (int capacity) {
+        if (capacity <= myX.length) { return; }
+        myIds = Arrays.copyOf(myIds, capacity);
+        myX = Arrays.copyOf(myX, capacity);
+        myY = Arrays.copyOf(myY, capacity);
+        myMass = Arrays.copyOf(myMass, capacity);
+        myFixed = Arrays.copyOf(myFixed, capacity);
+    }
+
+    private void growSprings (int capacity) {
+        if (capacity <= mySpringStart.length) { return; }
+        mySpringStart = Arrays.copyOf(mySpringStart, capacity);
+        mySpringEnd = Arrays.copyOf(mySpringEnd, capacity);
+        myLength = Arrays.copyOf(myLength, capacity);
+        myK = Arrays.copyOf(myK, capacity);
+        myDamping = Arrays.copyOf(myDamping, capacity);
+        myAmplitude = Arrays.copyOf(myAmplitude, capacity);
+        mySpringFlags = Arrays.copyOf(mySpringFlags, capacity);
+    }
+}
@@ -0,0 +1,219 @@
+package simulation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Reads and writes assemblies in a compact binary format that loads without
+ * parsing anything per mass or spring.
+ *
+ * All values are little endian. A 16 byte header holds the magic number, the
+ * format version, the number of masses and the number of springs and muscles.
+ * Packed arrays follow, widest values first so each array is aligned:
+ *
+ *   double x, y, mass               one of each per mass
+ *   double length, k, damping,
+ *          amplitude                one of each per spring
+ *   int    id                       per mass
+ *   int    start, end               per spring, numbers of its masses
+ *   byte   flags                    per mass, 1 if fixed
+ *   byte   flags                    per spring, 1 if a muscle
+ *
+ * Files are read by mapping them into memory and copying each array out in
+ * bulk.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class AssemblyFile {
+    // "SPRB" read as a little endian int
+    public static final int MAGIC = 0x42525053;
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final byte FIXED_FLAG = 1;
+
+    private AssemblyFile () {
+        // does not make sense to construct this class
+    }
+
+    /**
+     * Returns true if the given file starts like a binary assembly.
+     */
+    public static boolean isBinary (File file) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            input.getChannel().read(header);
+            return header.position() == 4 && header.getInt(0) == MAGIC;
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Reads an assembly from the given binary file.
+     *
+     * @throws IllegalArgumentException if the file is not a binary assembly
+     *         this version can read, or is damaged
+     */
+    public static Assembly read (File file) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        try {
+            FileChannel channel = input.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                throw error(file, "too short to be a binary assembly");
+            }
+            ByteBuffer header = map(channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw error(file, "not a binary assembly");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw error(file, "unsupported version " + version);
+            }
+            int masses = header.getInt();
+            int springs = header.getInt();
+            if (masses < 0 || springs < 0 || channel.size() != fileSize(masses, springs)) {
+                throw error(file, "damaged: size does not match its counts");
+            }
+            Assembly result = new Assembly(masses, springs);
+            result.setCounts(masses, springs);
+            long offset = HEADER_SIZE;
+            offset = readDoubles(channel, offset, result.getX(), masses);
+            offset = readDoubles(channel, offset, result.getY(), masses);
+            offset = readDoubles(channel, offset, result.getMass(), masses);
+            offset = readDoubles(channel, offset, result.getLength(), springs);
+            offset = readDoubles(channel, offset, result.getK(), springs);
+            offset = readDoubles(channel, offset, result.getDamping(), springs);
+            offset = readDoubles(channel, offset, result.getAmplitude(), springs);
+            offset = readInts(channel, offset, result.getIds(), masses);
+            offset = readInts(channel, offset, result.getSpringStart(), springs);
+            offset = readInts(channel, offset, result.getSpringEnd(), springs);
+            byte[] massFlags = new byte[masses];
+            offset = readBytes(channel, offset, massFlags, masses);
+            readBytes(channel, offset, result.getSpringFlags(), springs);
+            boolean[] fixed = result.getFixed();
+            for (int k = 0; k < masses; k++) {
+                fixed[k] = (massFlags[k] & FIXED_FLAG) != 0;
+            }
+            checkEnds(file, result.getSpringStart(), springs, masses);
+            checkEnds(file, result.getSpringEnd(), springs, masses);
+            return result;
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Writes the given assembly to the given file in the binary format,
+     * replacing anything the file held.
+     */
+    public static void write (Assembly assembly, File file) throws IOException {
+        int masses = assembly.getMassCount();
+        int springs = assembly.getSpringCount();
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = output.getChannel();
+            output.setLength(fileSize(masses, springs));
+            ByteBuffer header = map(channel, FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(masses).putInt(springs);
+            long offset = HEADER_SIZE;
+            offset = writeDoubles(channel, offset, assembly.getX(), masses);
+            offset = writeDoubles(channel, offset, assembly.getY(), masses);
+            offset = writeDoubles(channel, offset, assembly.getMass(), masses);
+            offset = writeDoubles(channel, offset, assembly.getLength(), springs);
+            offset = writeDoubles(channel, offset, assembly.getK(), springs);
+            offset = writeDoubles(channel, offset, assembly.getDamping(), springs);
+            offset = writeDoubles(channel, offset, assembly.getAmplitude(), springs);
+            offset = writeInts(channel, offset, assembly.getIds(), masses);
+            offset = writeInts(channel, offset, assembly.getSpringStart(), springs);
+            offset = writeInts(channel, offset, assembly.getSpringEnd(), springs);
+            byte[] massFlags = new byte[masses];
+            boolean[] fixed = assembly.getFixed();
+            for (int k = 0; k < masses; k++) {
+                massFlags[k] = fixed[k] ? FIXED_FLAG : 0;
+            }
+            offset = writeBytes(channel, offset, massFlags, masses);
+            writeBytes(channel, offset, assembly.getSpringFlags(), springs);
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    private static long fileSize (int masses, int springs) {
+        return HEADER_SIZE + (3L * Double.SIZE + Integer.SIZE + Byte.SIZE) / 8 * masses +
+               (4L * Double.SIZE + 2 * Integer.SIZE + Byte.SIZE) / 8 * springs;
+    }
+
+    // every spring must join masses of the assembly
+    private static void checkEnds (File file, int[] ends, int springs, int masses) {
+        for (int k = 0; k < springs; k++) {
+            if (ends[k] < 0 || ends[k] >= masses) {
+                throw error(file, "spring " + k + " joins missing mass " + ends[k]);
+            }
+        }
+    }
+
+    // each array is mapped on its own so no single mapping exceeds 2 GB
+    private static long readDoubles (FileChannel channel, long offset, double[] values,
+                                     int count) throws IOException {
+        long size = (long) count * Double.SIZE / 8;
+        map(channel, FileChannel.MapMode.READ_ONLY, offset, size).asDoubleBuffer()
+                .get(values, 0, count);
+        return offset + size;
+    }
+
+    private static long readInts (FileChannel channel, long offset, int[] values, int count)
+        throws IOException {
+        long size = (long) count * Integer.SIZE / 8;
+        map(channel, FileChannel.MapMode.READ_ONLY, offset, size).asIntBuffer()
+                .get(values, 0, count);
+        return offset + size;
+    }
+
+    private static long readBytes (FileChannel channel, long offset, byte[] values, int count)
+        throws IOException {
+        map(channel, FileChannel.MapMode.READ_ONLY, offset, count).get(values, 0, count);
+        return offset + count;
+    }
+
+    private static long writeDoubles (FileChannel channel, long offset, double[] values,
+                                      int count) throws IOException {
+        long size = (long) count * Double.SIZE / 8;
+        map(channel, FileChannel.MapMode.READ_WRITE, offset, size).asDoubleBuffer()
+                .put(values, 0, count);
+        return offset + size;
+    }
+
+    private static long writeInts (FileChannel channel, long offset, int[] values, int count)
+        throws IOException {
+        long size = (long) count * Integer.SIZE / 8;
+        map(channel, FileChannel.MapMode.READ_WRITE, offset, size).asIntBuffer()
+                .put(values, 0, count);
+        return offset + size;
+    }
+
+    private static long writeBytes (FileChannel channel, long offset, byte[] values, int count)
+        throws IOException {
+        map(channel, FileChannel.MapMode.READ_WRITE, offset, count).put(values, 0, count);
+        return offset + count;
+    }
+
+    private static ByteBuffer map (FileChannel channel, FileChannel.MapMode mode, long offset,
+                                   long size) throws IOException {
+        return channel.map(mode, offset, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static IllegalArgumentException error (File file, String message) {
+        return new IllegalArgumentException(file.getName() + ": " + message);
+    }
+}
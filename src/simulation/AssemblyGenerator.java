@@ -0,0 +1,316 @@
+package simulation;
+
+import java.awt.Dimension;
+import java.util.Random;
+
+
+/**
+ * Makes assemblies of any size for testing the simulation at scale:
+ * rectangular and triangular lattices like cloth, chains, random geometric
+ * graphs and walkers driven by muscles.
+ *
+ * Springs start at rest, with stiffness drawn evenly from a range, and each
+ * mass is fixed with a given probability. Masses are given IDs in the order
+ * they are made. The same seed and settings always make the same assembly.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class AssemblyGenerator {
+    // topologies, as named to generate
+    public static final String RECTANGULAR = "rectangular";
+    public static final String TRIANGULAR = "triangular";
+    public static final String CHAIN = "chain";
+    public static final String RANDOM = "random";
+    public static final String WALKERS = "walkers";
+    public static final String[] TOPOLOGIES = { RECTANGULAR, TRIANGULAR, CHAIN, RANDOM, WALKERS };
+
+    public static final double DEFAULT_SPACING = 20;
+    public static final double DEFAULT_MIN_K = 0.3;
+    public static final double DEFAULT_MAX_K = 0.7;
+    public static final double DEFAULT_MASS = 1;
+
+    // room left around the assembly
+    private static final double MARGIN = 20;
+    // average number of springs at each mass of a random geometric graph
+    private static final double RANDOM_DEGREE = 6;
+    // masses in each walker, and how far its muscles stretch and shrink
+    private static final int WALKER_MASSES = 4;
+    private static final double WALKER_AMPLITUDE = 0.3;
+    private static final double ROOT_3_OVER_2 = Math.sqrt(3) / 2;
+
+    private Random myRandom;
+    private double mySpacing = DEFAULT_SPACING;
+    private double myMinK = DEFAULT_MIN_K;
+    private double myMaxK = DEFAULT_MAX_K;
+    private double myMass = DEFAULT_MASS;
+    private double myDamping;
+    private double myFixedFraction;
+
+    /**
+     * Create a generator whose assemblies depend only on the given seed and
+     * its settings.
+     */
+    public AssemblyGenerator (long seed) {
+        myRandom = new Random(seed);
+    }
+
+    /**
+     * Sets the range each spring's stiffness is drawn from.
+     */
+    public void setStiffness (double minK, double maxK) {
+        if (minK > maxK) {
+            throw new IllegalArgumentException("stiffness range is empty: " + minK + " to " +
+                                               maxK);
+        }
+        myMinK = minK;
+        myMaxK = maxK;
+    }
+
+    /**
+     * Sets the fraction of masses that are fixed, from 0 to 1.
+     */
+    public void setFixedFraction (double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("fixed fraction must be from 0 to 1: " +
+                                               fraction);
+        }
+        myFixedFraction = fraction;
+    }
+
+    /**
+     * Sets the distance between neighboring masses.
+     */
+    public void setSpacing (double spacing) {
+        mySpacing = spacing;
+    }
+
+    /**
+     * Sets the mass of every mass.
+     */
+    public void setMass (double mass) {
+        myMass = mass;
+    }
+
+    /**
+     * Sets the damping of every spring and muscle.
+     */
+    public void setDamping (double damping) {
+        myDamping = damping;
+    }
+
+    /**
+     * Makes an assembly of the named topology with about the given number of
+     * masses.
+     */
+    public Assembly generate (String topology, int masses) {
+        if (masses < 1) {
+            throw new IllegalArgumentException("need at least one mass: " + masses);
+        }
+        if (topology.equals(RECTANGULAR)) { return rectangularLattice(masses); }
+        if (topology.equals(TRIANGULAR)) { return triangularLattice(masses); }
+        if (topology.equals(CHAIN)) { return chain(masses); }
+        if (topology.equals(RANDOM)) { return randomGraph(masses); }
+        if (topology.equals(WALKERS)) { return walkers(masses); }
+        throw new IllegalArgumentException("unknown topology " + topology);
+    }
+
+    /**
+     * Makes a model holding an assembly of the named topology with about the
+     * given number of masses, big enough to hold it.
+     */
+    public Model generateModel (String topology, int masses) {
+        Assembly assembly = generate(topology, masses);
+        double width = 0;
+        double height = 0;
+        for (int k = 0; k < assembly.getMassCount(); k++) {
+            width = Math.max(width, assembly.getX()[k]);
+            height = Math.max(height, assembly.getY()[k]);
+        }
+        Model result = new Model(new Dimension((int) Math.ceil(width + MARGIN),
+                                               (int) Math.ceil(height + MARGIN)));
+        result.add(assembly);
+        result.reorder();
+        return result;
+    }
+
+    /**
+     * Makes the given number of masses in rows, each joined to the masses
+     * beside, above and below it.
+     */
+    public Assembly rectangularLattice (int masses) {
+        int columns = (int) Math.ceil(Math.sqrt(masses));
+        Assembly result = new Assembly(masses, masses * 2);
+        for (int k = 0; k < masses; k++) {
+            addMass(result, (k % columns) * mySpacing, (k / columns) * mySpacing);
+        }
+        for (int k = 0; k < masses; k++) {
+            if (k % columns + 1 < columns && k + 1 < masses) {
+                addSpring(result, k, k + 1);
+            }
+            if (k + columns < masses) {
+                addSpring(result, k, k + columns);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Makes the given number of masses in rows, every other row shifted by
+     * half a space, each joined to its six nearest neighbors.
+     */
+    public Assembly triangularLattice (int masses) {
+        int columns = (int) Math.ceil(Math.sqrt(masses));
+        Assembly result = new Assembly(masses, masses * 3);
+        for (int k = 0; k < masses; k++) {
+            int row = k / columns;
+            double shift = (row % 2) * mySpacing / 2;
+            addMass(result, shift + (k % columns) * mySpacing, row * mySpacing * ROOT_3_OVER_2);
+        }
+        for (int k = 0; k < masses; k++) {
+            int row = k / columns;
+            int column = k % columns;
+            if (column + 1 < columns && k + 1 < masses) {
+                addSpring(result, k, k + 1);
+            }
+            // the two masses below are offset toward the shifted side
+            int below = k + columns;
+            int belowOther = (row % 2 == 0) ? below - 1 : below + 1;
+            if (below < masses) {
+                addSpring(result, k, below);
+            }
+            boolean isInRow = (row % 2 == 0) ? column > 0 : column + 1 < columns;
+            if (isInRow && belowOther < masses) {
+                addSpring(result, k, belowOther);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Makes the given number of masses joined one after another, folded back
+     * and forth into a square.
+     */
+    public Assembly chain (int masses) {
+        int columns = (int) Math.ceil(Math.sqrt(masses));
+        Assembly result = new Assembly(masses, masses);
+        for (int k = 0; k < masses; k++) {
+            int row = k / columns;
+            int column = (row % 2 == 0) ? k % columns : columns - 1 - k % columns;
+            addMass(result, column * mySpacing, row * mySpacing);
+        }
+        for (int k = 0; k + 1 < masses; k++) {
+            addSpring(result, k, k + 1);
+        }
+        return result;
+    }
+
+    /**
+     * Makes the given number of masses scattered evenly at random, each
+     * joined to every mass closer than a distance chosen so that masses have
+     * a few springs each on average.
+     */
+    public Assembly randomGraph (int masses) {
+        double side = mySpacing * Math.sqrt(masses);
+        double radius = mySpacing * Math.sqrt(RANDOM_DEGREE / Math.PI);
+        Assembly result = new Assembly(masses, (int) (masses * RANDOM_DEGREE / 2));
+        for (int k = 0; k < masses; k++) {
+            addMass(result, myRandom.nextDouble() * side, myRandom.nextDouble() * side);
+        }
+        // masses sorted into square cells as wide as the radius, so only
+        // masses in neighboring cells need to be compared
+        int cells = Math.max(1, (int) (side / radius));
+        double cellSize = side / cells;
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[masses];
+        double[] x = result.getX();
+        double[] y = result.getY();
+        for (int k = 0; k < masses; k++) {
+            int column = Math.min(cells - 1, (int) (x[k] / cellSize));
+            int row = Math.min(cells - 1, (int) (y[k] / cellSize));
+            cellOf[k] = row * cells + column;
+            cellStart[cellOf[k] + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = cellStart.clone();
+        int[] byCell = new int[masses];
+        for (int k = 0; k < masses; k++) {
+            byCell[next[cellOf[k]]++] = k;
+        }
+        double radiusSquared = radius * radius;
+        for (int k = 0; k < masses; k++) {
+            int column = cellOf[k] % cells;
+            int row = cellOf[k] / cells;
+            for (int r = Math.max(0, row - 1); r <= Math.min(cells - 1, row + 1); r++) {
+                for (int c = Math.max(0, column - 1); c <= Math.min(cells - 1, column + 1); c++) {
+                    int cell = r * cells + c;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        int other = byCell[i];
+                        double dx = x[other] - x[k];
+                        double dy = y[other] - y[k];
+                        if (other > k && dx * dx + dy * dy < radiusSquared) {
+                            addSpring(result, k, other);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Makes walkers of four masses each, at least the given number of masses
+     * in all, standing in rows. Each walker has two hips joined by a spring,
+     * a leg from each hip to a foot, a spring between its feet, and two
+     * crossed muscles from each hip to the other foot that stretch and
+     * shrink in turn, rocking it along.
+     */
+    public Assembly walkers (int masses) {
+        int walkers = (masses + WALKER_MASSES - 1) / WALKER_MASSES;
+        int columns = (int) Math.ceil(Math.sqrt(walkers));
+        Assembly result = new Assembly(walkers * WALKER_MASSES, walkers * 6);
+        for (int w = 0; w < walkers; w++) {
+            double left = (w % columns) * mySpacing * 3;
+            double top = (w / columns) * mySpacing * 3;
+            int hip = addMass(result, left, top);
+            addMass(result, left + mySpacing, top);
+            int foot = addMass(result, left, top + mySpacing * 2);
+            addMass(result, left + mySpacing, top + mySpacing * 2);
+            addSpring(result, hip, hip + 1);
+            addSpring(result, foot, foot + 1);
+            addSpring(result, hip, foot);
+            addSpring(result, hip + 1, foot + 1);
+            addMuscle(result, hip, foot + 1, WALKER_AMPLITUDE);
+            addMuscle(result, hip + 1, foot, -WALKER_AMPLITUDE);
+        }
+        return result;
+    }
+
+    // adds a mass, fixed as often as asked, with the next ID
+    private int addMass (Assembly assembly, double x, double y) {
+        int id = assembly.getMassCount();
+        return assembly.addMass(id, MARGIN + x, MARGIN + y, myMass,
+                                myRandom.nextDouble() < myFixedFraction);
+    }
+
+    // adds a spring at rest between the given masses
+    private void addSpring (Assembly assembly, int start, int end) {
+        assembly.addSpring(start, end, distance(assembly, start, end), nextK(), myDamping);
+    }
+
+    private void addMuscle (Assembly assembly, int start, int end, double amplitude) {
+        assembly.addMuscle(start, end, distance(assembly, start, end), nextK(), amplitude,
+                           myDamping);
+    }
+
+    private double nextK () {
+        return myMinK + myRandom.nextDouble() * (myMaxK - myMinK);
+    }
+
+    private static double distance (Assembly assembly, int start, int end) {
+        double dx = assembly.getX()[end] - assembly.getX()[start];
+        double dy = assembly.getY()[end] - assembly.getY()[start];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,288 @@
+package simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import util.IntHashMap;
+import util.SyntaxException;
+import util.TokenReader;
+
+
+/**
+ * Reads the masses, springs and muscles of a text data file into an Assembly,
+ * using several threads for large files.
+ *
+ * The file is split into chunks at line breaks. Each chunk is read on its own
+ * thread into packed arrays, with springs and muscles naming their masses by
+ * ID. The chunks are then joined in file order and every ID is looked up once
+ * all masses are known, so a spring may name a mass defined after it, and a
+ * mass ID used twice means the last mass with that ID. Any number of threads
+ * reads the same assembly as a single one.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class AssemblyReader {
+    // files are not split into chunks smaller than this many bytes
+    public static final long MIN_CHUNK_SIZE = 1 << 22;
+
+    // data file keywords
+    private static final String MASS_KEYWORD = "mass";
+    private static final String SPRING_KEYWORD = "spring";
+    private static final String MUSCLE_KEYWORD = "muscle";
+
+    private int myThreadCount;
+
+    /**
+     * Create a reader that uses up to one thread per processor.
+     */
+    public AssemblyReader () {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a reader that uses up to the given number of threads.
+     *
+     * @param threadCount : number of threads, at least one
+     */
+    public AssemblyReader (int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("thread count must be positive: " + threadCount);
+        }
+        myThreadCount = threadCount;
+    }
+
+    /**
+     * Reads the assembly in the given file.
+     *
+     * @throws SyntaxException if the file is not formatted correctly
+     */
+    public Assembly read (File file) throws IOException {
+        long[] bounds = findChunks(file);
+        Chunk[] chunks = new Chunk[bounds.length - 1];
+        if (chunks.length == 1) {
+            chunks[0] = new Chunk(file, bounds[0], bounds[1]).call();
+        }
+        else {
+            readInParallel(file, bounds, chunks);
+        }
+        return join(file, chunks);
+    }
+
+    // reads every chunk on a pool of threads
+    private void readInParallel (File file, long[] bounds, Chunk[] chunks) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(Math.min(myThreadCount, chunks.length));
+        try {
+            List<Chunk> tasks = new ArrayList<Chunk>();
+            for (int k = 0; k < chunks.length; k++) {
+                tasks.add(new Chunk(file, bounds[k], bounds[k + 1]));
+            }
+            List<Future<Chunk>> results = pool.invokeAll(tasks);
+            for (int k = 0; k < chunks.length; k++) {
+                chunks[k] = results.get(k).get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading " + file.getName());
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) { throw (IOException) e.getCause(); }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    // where each chunk starts, then the end of the file; chunks start after a line break
+    private long[] findChunks (File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            long size = input.length();
+            int count = (int) Math.max(1, Math.min(myThreadCount, size / MIN_CHUNK_SIZE));
+            long[] bounds = new long[count + 1];
+            int found = 1;
+            for (int k = 1; k < count; k++) {
+                long start = Math.max(size * k / count, bounds[found - 1]);
+                input.seek(start);
+                int b = input.read();
+                while (b >= 0 && b != '\n') {
+                    b = input.read();
+                }
+                start = input.getFilePointer();
+                if (start > bounds[found - 1] && start < size) {
+                    bounds[found++] = start;
+                }
+            }
+            bounds[found++] = size;
+            return Arrays.copyOf(bounds, found);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    // joins the chunks in order and looks up the masses each spring names
+    private Assembly join (File file, Chunk[] chunks) {
+        int masses = 0;
+        int springs = 0;
+        int lines = 0;
+        for (Chunk c : chunks) {
+            if (c.myError != null) { throw c.myError.moveDown(lines); }
+            masses += c.myAssembly.getMassCount();
+            springs += c.myAssembly.getSpringCount();
+            lines += c.myLineCount;
+        }
+        Assembly result = new Assembly(masses, springs);
+        result.setCounts(masses, springs);
+        int[] springLines = new int[springs];
+        masses = 0;
+        springs = 0;
+        lines = 0;
+        for (Chunk c : chunks) {
+            Assembly part = c.myAssembly;
+            int m = part.getMassCount();
+            System.arraycopy(part.getIds(), 0, result.getIds(), masses, m);
+            System.arraycopy(part.getX(), 0, result.getX(), masses, m);
+            System.arraycopy(part.getY(), 0, result.getY(), masses, m);
+            System.arraycopy(part.getMass(), 0, result.getMass(), masses, m);
+            System.arraycopy(part.getFixed(), 0, result.getFixed(), masses, m);
+            int s = part.getSpringCount();
+            System.arraycopy(part.getSpringStart(), 0, result.getSpringStart(), springs, s);
+            System.arraycopy(part.getSpringEnd(), 0, result.getSpringEnd(), springs, s);
+            System.arraycopy(part.getLength(), 0, result.getLength(), springs, s);
+            System.arraycopy(part.getK(), 0, result.getK(), springs, s);
+            System.arraycopy(part.getDamping(), 0, result.getDamping(), springs, s);
+            System.arraycopy(part.getAmplitude(), 0, result.getAmplitude(), springs, s);
+            System.arraycopy(part.getSpringFlags(), 0, result.getSpringFlags(), springs, s);
+            for (int k = 0; k < s; k++) {
+                springLines[springs + k] = lines + c.mySpringLines[k];
+            }
+            masses += m;
+            springs += s;
+            lines += c.myLineCount;
+        }
+        IntHashMap massIds = new IntHashMap();
+        int[] ids = result.getIds();
+        for (int k = 0; k < masses; k++) {
+            massIds.put(ids[k], k);
+        }
+        int[] starts = result.getSpringStart();
+        int[] ends = result.getSpringEnd();
+        for (int k = 0; k < springs; k++) {
+            starts[k] = resolve(file, massIds, starts[k], springLines[k]);
+            ends[k] = resolve(file, massIds, ends[k], springLines[k]);
+        }
+        return result;
+    }
+
+    // number of the mass a spring on the given line names by the given ID
+    private int resolve (File file, IntHashMap massIds, int id, int line) {
+        int index = massIds.get(id);
+        if (index == IntHashMap.MISSING) {
+            throw new SyntaxException(file.getName(), line, "no mass with ID " + id);
+        }
+        return index;
+    }
+
+
+    /**
+     * Reads the lines of one chunk of a file. Its springs and muscles keep the
+     * IDs of their masses, and the line each is on, until the chunks are joined.
+     */
+    private static class Chunk implements Callable<Chunk> {
+        private File myFile;
+        private long myStart;
+        private long myEnd;
+        private Assembly myAssembly;
+        private int[] mySpringLines;
+        private int myLineCount;
+        // first mistake in the chunk, numbered from the start of the chunk
+        private SyntaxException myError;
+
+        public Chunk (File file, long start, long end) {
+            myFile = file;
+            myStart = start;
+            myEnd = end;
+        }
+
+        @Override
+        public Chunk call () throws IOException {
+            myAssembly = new Assembly();
+            mySpringLines = new int[16];
+            TokenReader line = new TokenReader(myFile, myStart, myEnd);
+            try {
+                while (line.nextLine()) {
+                    if (line.nextIs(MASS_KEYWORD)) {
+                        massCommand(line);
+                    }
+                    else if (line.nextIs(SPRING_KEYWORD)) {
+                        springCommand(line);
+                    }
+                    else if (line.nextIs(MUSCLE_KEYWORD)) {
+                        muscleCommand(line);
+                    }
+                }
+            }
+            catch (SyntaxException e) {
+                myError = e;
+            }
+            finally {
+                line.close();
+            }
+            myLineCount = line.getLineNumber();
+            return this;
+        }
+
+        // create mass from formatted data
+        private void massCommand (TokenReader line) {
+            int id = line.nextInt();
+            double x = line.nextDouble();
+            double y = line.nextDouble();
+            double mass = line.nextDouble();
+            myAssembly.addMass(id, x, y, mass);
+        }
+
+        // create spring from formatted data
+        private void springCommand (TokenReader line) {
+            int m1 = line.nextInt();
+            int m2 = line.nextInt();
+            double restLength = line.nextDouble();
+            double ks = line.nextDouble();
+            double damping = line.hasNextNumber() ? line.nextDouble() : 0;
+            recordLine(line);
+            myAssembly.addSpring(m1, m2, restLength, ks, damping);
+        }
+
+        // create muscle from formatted data
+        private void muscleCommand (TokenReader line) {
+            int m1 = line.nextInt();
+            int m2 = line.nextInt();
+            double restLength = line.nextDouble();
+            double ks = line.nextDouble();
+            double amplitude = line.nextDouble();
+            double damping = line.hasNextNumber() ? line.nextDouble() : 0;
+            recordLine(line);
+            myAssembly.addMuscle(m1, m2, restLength, ks, amplitude, damping);
+        }
+
+        // remembers which line the next spring is on, for reporting unknown IDs
+        private void recordLine (TokenReader line) {
+            int index = myAssembly.getSpringCount();
+            if (index == mySpringLines.length) {
+                mySpringLines = Arrays.copyOf(mySpringLines, index * 2);
+            }
+            mySpringLines[index] = line.getLineNumber();
+        }
+    }
+}
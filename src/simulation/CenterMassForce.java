@@ -1,9 +1,6 @@
 package simulation;
 
 import java.awt.event.KeyEvent;
-import java.util.List;
-import util.Location;
-import util.Vector;
 
 
 /**
@@ -16,7 +13,12 @@ public class CenterMassForce extends Environment {
 
     private double myMagnitude;
     private double myExponentialIndex;
-    private Mass myCenterMass;
+    private double myCenterX;
+    private double myCenterY;
+    // total mass only changes when masses are added or removed
+    private double myTotalMass;
+    private ParticleStore myParticles;
+    private int myVersion;
 
     /**
      * Constructor for creating a force generated by the center of mass 
@@ -33,52 +35,89 @@ public class CenterMassForce extends Environment {
     }
 
     /**
-     * Holds the information for center of mass calculation
+     * @return x coordinate of the center of mass when the force was last applied
      */
-    public Mass getCenterMass () {
-        return myCenterMass;
+    public double getCenterX () {
+        return myCenterX;
     }
 
     /**
-     * Calculates the vector that represents the force exerted by
-     * the center of mass
-     * Applies the force exerted by the center of mass to each mass
+     * @return y coordinate of the center of mass when the force was last applied
+     */
+    public double getCenterY () {
+        return myCenterY;
+    }
+
+    /**
+     * Calculates the center of mass, then applies the force it exerts
+     * to each mass, without creating any objects
      * Does not apply force if isForceOn is off
-     * @param masses List with the masses of the model
+     * @param particles store with the masses of the model
      */
-    public void applyForce (List<Mass> masses) {
+    public void applyForce (ParticleStore particles) {
         if (!isForceOn) { return; }
-        myCenterMass = calculateCenterOfMass(masses);
-        Location centerLocation = myCenterMass.getCenter();
-        for (Mass m : masses) {
-            double distance = myCenterMass.distance(m);
-            double force = myMagnitude /
-                           (Math.pow(distance, myExponentialIndex));
-            Vector massesDirection = new Vector(m.getCenter(), centerLocation);
-            Vector vectorForce = new Vector(massesDirection.getDirection(),
-                                            force);
-            m.applyForce(vectorForce);
+        if (!calculateCenterOfMass(particles)) { return; }
+        double[] x = particles.getPositionX();
+        double[] y = particles.getPositionY();
+        for (int i = 0; i < particles.size(); i++) {
+            double dx = myCenterX - x[i];
+            double dy = myCenterY - y[i];
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            // masses at the center are pushed along +x, like coincident spring ends
+            if (distance == 0) {
+                particles.applyForce(i, calculateForce(distance), 0);
+            }
+            else {
+                double scale = calculateForce(distance) / distance;
+                particles.applyForce(i, dx * scale, dy * scale);
+            }
         }
     }
 
+    // magnitude of the force at the given distance from the center
+    private double calculateForce (double distance) {
+        if (myExponentialIndex == 0) { return myMagnitude; }
+        if (myExponentialIndex == 1) { return myMagnitude / distance; }
+        if (myExponentialIndex == 2) { return myMagnitude / (distance * distance); }
+        return myMagnitude / Math.pow(distance, myExponentialIndex);
+    }
+
     /**
-     * Calculates the center of mass and retrieves a mass with zero mass
-     * and a location. A mass object is returned because of the
-     * convenience of the distance() method
+     * Calculates the center of mass in one pass over the positions.
+     * Returns false if there is no mass to have a center.
      */
-    private Mass calculateCenterOfMass (List<Mass> masses) {
-        // Total mass will always be the same, not sure if necessary
-        // to do it every time or set it from Model only once
-        double totalMass = 0;
+    private boolean calculateCenterOfMass (ParticleStore particles) {
+        if (particles != myParticles || particles.getVersion() != myVersion) {
+            myTotalMass = 0;
+            for (int i = 0; i < particles.size(); i++) {
+                myTotalMass += particles.getMass(i);
+            }
+            myParticles = particles;
+            myVersion = particles.getVersion();
+        }
+        if (myTotalMass == 0) { return false; }
+        double[] x = particles.getPositionX();
+        double[] y = particles.getPositionY();
         double massPositionSumX = 0;
         double massPositionSumY = 0;
-        for (Mass m : masses) {
-            totalMass += m.getMass();
-            massPositionSumX += m.getMass() * m.getX();
-            massPositionSumY += m.getMass() * m.getY();
+        for (int i = 0; i < particles.size(); i++) {
+            double mass = particles.getMass(i);
+            massPositionSumX += mass * x[i];
+            massPositionSumY += mass * y[i];
         }
-        return new Mass(massPositionSumX / totalMass,
-                        massPositionSumY / totalMass, 0);
+        myCenterX = massPositionSumX / myTotalMass;
+        myCenterY = massPositionSumY / myTotalMass;
+        return true;
+    }
+
+    @Override
+    protected int getKind () {
+        return CENTER_MASS;
+    }
+
+    @Override
+    protected double[] getSettings () {
+        return new double[] { myMagnitude, myExponentialIndex };
     }
 
     @Override
@@ -0,0 +1,317 @@
+package simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Complete state of a running simulation at one moment, copied out of a
+ * Model so it can be written to disk on another thread, and read back to
+ * carry on exactly where it left off.
+ *
+ * A checkpoint holds every mass's position, velocity, mass and whether it is
+ * fixed, every spring's and muscle's settings and how far each muscle is
+ * through its cycle, every environment force's settings and whether it is
+ * on, and the integrator, including anything it carries from one step to
+ * the next. Restoring it and stepping gives bit for bit the same masses as
+ * stepping the original, given the same number of threads.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class Checkpoint {
+    // "SPRC"
+    public static final int MAGIC = 0x53505243;
+    public static final int VERSION = 1;
+
+    // bytes converted at a time when writing or reading arrays
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    // simulation
+    int myWidth;
+    int myHeight;
+    double myTimeStep;
+    int myMaxSubsteps;
+    double myUnsimulatedTime;
+    long myStepCount;
+    String myIntegratorName;
+    int myMaxIterations;
+    double[][] myIntegratorState;
+    byte[] myEnvironment;
+    // masses
+    int myMassCount;
+    double[] myX;
+    double[] myY;
+    double[] myVelocityX;
+    double[] myVelocityY;
+    double[] myMass;
+    boolean[] myFixed;
+    int[] myIds;
+    // springs and muscles
+    int mySpringCount;
+    int[] mySpringStart;
+    int[] mySpringEnd;
+    double[] myLength;
+    double[] myK;
+    double[] myDamping;
+    byte[] mySpringFlags;
+    double[] myAmplitude;
+    double[] myInitialLength;
+    double[] myPhase;
+
+    /**
+     * Create an empty checkpoint, filled in by Model.
+     */
+    Checkpoint () {
+        // filled in by Model.saveCheckpoint or read
+    }
+
+    /**
+     * @return number of physics steps the simulation had taken
+     */
+    public long getStepCount () {
+        return myStepCount;
+    }
+
+    /**
+     * @return number of masses in this checkpoint
+     */
+    public int getMassCount () {
+        return myMassCount;
+    }
+
+    /**
+     * Returns true if the given file starts like a checkpoint.
+     */
+    public static boolean isCheckpoint (File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return file.length() >= 4 && in.readInt() == MAGIC;
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes this checkpoint to the given file, replacing it only once the
+     * whole checkpoint is written, so a crash while writing leaves any older
+     * checkpoint there untouched.
+     */
+    public void write (File file) throws IOException {
+        File partial = new File(file.getPath() + ".partial");
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(partial), CHUNK_SIZE));
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(myWidth);
+            out.writeInt(myHeight);
+            out.writeDouble(myTimeStep);
+            out.writeInt(myMaxSubsteps);
+            out.writeDouble(myUnsimulatedTime);
+            out.writeLong(myStepCount);
+            out.writeUTF(myIntegratorName);
+            out.writeInt(myMaxIterations);
+            out.writeInt(myEnvironment.length);
+            out.write(myEnvironment);
+            out.writeInt(myMassCount);
+            out.writeInt(mySpringCount);
+            out.writeByte(myIntegratorState.length);
+            for (double[] values : myIntegratorState) {
+                writeDoubles(out, buffer, values, myMassCount);
+            }
+            writeDoubles(out, buffer, myX, myMassCount);
+            writeDoubles(out, buffer, myY, myMassCount);
+            writeDoubles(out, buffer, myVelocityX, myMassCount);
+            writeDoubles(out, buffer, myVelocityY, myMassCount);
+            writeDoubles(out, buffer, myMass, myMassCount);
+            writeInts(out, buffer, myIds, myMassCount);
+            byte[] fixed = new byte[myMassCount];
+            for (int k = 0; k < myMassCount; k++) {
+                fixed[k] = (byte) (myFixed[k] ? 1 : 0);
+            }
+            out.write(fixed);
+            writeInts(out, buffer, mySpringStart, mySpringCount);
+            writeInts(out, buffer, mySpringEnd, mySpringCount);
+            writeDoubles(out, buffer, myLength, mySpringCount);
+            writeDoubles(out, buffer, myK, mySpringCount);
+            writeDoubles(out, buffer, myDamping, mySpringCount);
+            writeDoubles(out, buffer, myAmplitude, mySpringCount);
+            writeDoubles(out, buffer, myInitialLength, mySpringCount);
+            writeDoubles(out, buffer, myPhase, mySpringCount);
+            out.write(mySpringFlags, 0, mySpringCount);
+        }
+        finally {
+            out.close();
+        }
+        // the old checkpoint stays whole until the new one replaces it in one move
+        Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a checkpoint written by write.
+     *
+     * @throws IllegalArgumentException if the file is not a checkpoint this
+     *         version can read
+     */
+    public static Checkpoint read (File file) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), CHUNK_SIZE));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException(file.getName() + ": not a checkpoint");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(file.getName() + ": unsupported version " +
+                                                   version);
+            }
+            byte[] buffer = new byte[CHUNK_SIZE];
+            Checkpoint result = new Checkpoint();
+            result.myWidth = in.readInt();
+            result.myHeight = in.readInt();
+            result.myTimeStep = in.readDouble();
+            result.myMaxSubsteps = in.readInt();
+            result.myUnsimulatedTime = in.readDouble();
+            result.myStepCount = in.readLong();
+            result.myIntegratorName = in.readUTF();
+            result.myMaxIterations = in.readInt();
+            result.myEnvironment = new byte[in.readInt()];
+            in.readFully(result.myEnvironment);
+            int masses = in.readInt();
+            int springs = in.readInt();
+            result.myMassCount = masses;
+            result.mySpringCount = springs;
+            result.myIntegratorState = new double[in.readByte()][];
+            for (int k = 0; k < result.myIntegratorState.length; k++) {
+                result.myIntegratorState[k] = readDoubles(in, buffer, masses);
+            }
+            result.myX = readDoubles(in, buffer, masses);
+            result.myY = readDoubles(in, buffer, masses);
+            result.myVelocityX = readDoubles(in, buffer, masses);
+            result.myVelocityY = readDoubles(in, buffer, masses);
+            result.myMass = readDoubles(in, buffer, masses);
+            result.myIds = readInts(in, buffer, masses);
+            byte[] fixed = new byte[masses];
+            in.readFully(fixed);
+            result.myFixed = new boolean[masses];
+            for (int k = 0; k < masses; k++) {
+                result.myFixed[k] = fixed[k] != 0;
+            }
+            result.mySpringStart = readInts(in, buffer, springs);
+            result.mySpringEnd = readInts(in, buffer, springs);
+            result.myLength = readDoubles(in, buffer, springs);
+            result.myK = readDoubles(in, buffer, springs);
+            result.myDamping = readDoubles(in, buffer, springs);
+            result.myAmplitude = readDoubles(in, buffer, springs);
+            result.myInitialLength = readDoubles(in, buffer, springs);
+            result.myPhase = readDoubles(in, buffer, springs);
+            result.mySpringFlags = new byte[springs];
+            in.readFully(result.mySpringFlags);
+            return result;
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes the given environment forces as bytes to keep in a checkpoint.
+     */
+    static byte[] writeEnvironment (List<Environment> forces) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(forces.size());
+            for (Environment f : forces) {
+                f.write(out);
+            }
+            out.close();
+        }
+        catch (IOException e) {
+            // cannot happen writing to memory
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Makes the environment forces kept in this checkpoint.
+     */
+    List<Environment> readEnvironment () {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(myEnvironment));
+        List<Environment> result = new ArrayList<Environment>();
+        try {
+            int count = in.readInt();
+            for (int k = 0; k < count; k++) {
+                result.add(Environment.read(in));
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("damaged environment in checkpoint", e);
+        }
+        return result;
+    }
+
+    // arrays are converted a chunk at a time rather than one value per call
+    private static void writeDoubles (DataOutputStream out, ByteBuffer buffer, double[] values,
+                                      int count) throws IOException {
+        int perChunk = CHUNK_SIZE / 8;
+        for (int start = 0; start < count; start += perChunk) {
+            int length = Math.min(perChunk, count - start);
+            buffer.clear();
+            buffer.asDoubleBuffer().put(values, start, length);
+            out.write(buffer.array(), 0, length * 8);
+        }
+    }
+
+    private static void writeInts (DataOutputStream out, ByteBuffer buffer, int[] values,
+                                   int count) throws IOException {
+        int perChunk = CHUNK_SIZE / 4;
+        for (int start = 0; start < count; start += perChunk) {
+            int length = Math.min(perChunk, count - start);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, start, length);
+            out.write(buffer.array(), 0, length * 4);
+        }
+    }
+
+    private static double[] readDoubles (DataInputStream in, byte[] buffer, int count)
+        throws IOException {
+        double[] result = new double[count];
+        int perChunk = CHUNK_SIZE / 8;
+        for (int start = 0; start < count; start += perChunk) {
+            int length = Math.min(perChunk, count - start);
+            in.readFully(buffer, 0, length * 8);
+            ByteBuffer.wrap(buffer).asDoubleBuffer().get(result, start, length);
+        }
+        return result;
+    }
+
+    private static int[] readInts (DataInputStream in, byte[] buffer, int count)
+        throws IOException {
+        int[] result = new int[count];
+        int perChunk = CHUNK_SIZE / 4;
+        for (int start = 0; start < count; start += perChunk) {
+            int length = Math.min(perChunk, count - start);
+            in.readFully(buffer, 0, length * 4);
+            ByteBuffer.wrap(buffer).asIntBuffer().get(result, start, length);
+        }
+        return result;
+    }
+}
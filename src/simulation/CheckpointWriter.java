@@ -0,0 +1,64 @@
+package simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Writes checkpoints to disk on a thread of its own, so the thread running
+ * the simulation only pays for copying its state.
+ *
+ * One checkpoint is written at a time. If checkpoints are taken faster than
+ * they can be written, a checkpoint still waiting is replaced by the newer
+ * one rather than letting them pile up in memory.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class CheckpointWriter {
+    private ThreadPoolExecutor myWriter;
+
+    /**
+     * Create a writer with its own background thread.
+     */
+    public CheckpointWriter () {
+        myWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                                          new ArrayBlockingQueue<Runnable>(1),
+                                          new ThreadFactory() {
+                                              public Thread newThread (Runnable r) {
+                                                  Thread result = new Thread(r, "checkpoints");
+                                                  result.setDaemon(true);
+                                                  return result;
+                                              }
+                                          },
+                                          new ThreadPoolExecutor.DiscardOldestPolicy());
+    }
+
+    /**
+     * Writes the given checkpoint to the given file in the background.
+     */
+    public void write (final Checkpoint checkpoint, final File file) {
+        myWriter.execute(new Runnable() {
+            public void run () {
+                try {
+                    checkpoint.write(file);
+                }
+                catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Finishes writing any checkpoints given so far, then stops the
+     * background thread.
+     */
+    public void shutdown () throws InterruptedException {
+        myWriter.shutdown();
+        myWriter.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,15 @@
+package simulation;
+
+
+/**
+ * A change to a model, sent from another thread and carried out on the
+ * thread that runs the model, between physics steps.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public interface Command {
+    /**
+     * Carries out this command on the given model.
+     */
+    void execute (Model model);
+}
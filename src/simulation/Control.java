@@ -5,7 +5,7 @@ import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.event.KeyEvent;
-import java.util.List;
+import javax.swing.SwingUtilities;
 import util.Text;
 import view.Canvas;
 
@@ -20,10 +20,23 @@ public class Control {
     private static final int RATE_OF_RESIZE = 2;
     private static final int MINIMUM_VIEW_HEIGHT = 100;
     private static final int PIXELS_PER_RESIZE = 10;
-    private static final int COLOR_TONE_INCREMENT = 8;
+    // counted in frames, at 60 frames per second
+    private static final int COLOR_TONE_INCREMENT = 3;
     private static final int MAX_COLOR_TONE = 255;
-    private static final int KEY_DELAY = 6;
-    
+    private static final int KEY_DELAY = 15;
+    // fading status message colors, one per frame, made once
+    private static final Color[] FADE_COLORS = createFadeColors();
+    // statistics are refreshed this often, in nanoseconds
+    private static final long STATISTICS_INTERVAL = 500000000L;
+    private static final int STATISTICS_TOP = 20;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double MILLIS_PER_SECOND = 1e3;
+    // playback bar along the bottom of the view while replaying
+    private static final int TIMELINE_HEIGHT = 6;
+    private static final int TIMELINE_LABEL_OFFSET = 16;
+    private static final double SPEED_FACTOR = 2;
+    // while only the frame changes, the playback text is refreshed this often, in nanoseconds
+    private static final long REPLAY_STATUS_INTERVAL = 100000000L;
 
     private int keyCounter = 0;
     private Canvas myView;
@@ -31,64 +44,166 @@ public class Control {
     private int pixelsToResize = 0;
     private int colorCounter = 0;
     private String myLabelDescription = "";
-    private String myLastToggleStatus = "";
     private Text myStatus = new Text("");
+    private Point myStatusPosition = new Point();
+
+    // frame rate, step time and element counts, toggled with H
+    private boolean isShowingStatistics = false;
+    private Text myStatistics = new Text(" ");
+    private Point myStatisticsPosition = new Point();
+    private int myFrameCount = 0;
+    private long myStatisticsTime = System.nanoTime();
+    private Text myReplayStatus = new Text(" ");
+    private Point myReplayStatusPosition = new Point();
+    // playback as the text last showed it
+    private Replay myShownReplay;
+    private int myShownFrame;
+    private double myShownSpeed;
+    private boolean isShownPaused;
+    private long myReplayStatusTime;
 
     public Control (Canvas canvas) {
         myView = canvas;
     }
 
     /**
-     * Paints the status of inputs to notify the user
+     * Paints the status of inputs to notify the user, and the statistics
+     * of the given snapshot if they are turned on
      * 
      * @param pen Graphics of the view
+     * @param snapshot state of the model being drawn
      */
-    public void paint (Graphics2D pen) {
-        if (colorCounter > MAX_COLOR_TONE) {
+    public void paint (Graphics2D pen, RenderSnapshot snapshot) {
+        if (colorCounter >= FADE_COLORS.length) {
             colorCounter = 0;
-            myLabelDescription = myLastToggleStatus = "";
+            myLabelDescription = "";
 
         }
         if (myLabelDescription.length() != 0) {
-            myStatus.setText(myLabelDescription + " " + myLastToggleStatus);
-            myStatus.paint(pen, new Point(myView.getWidth() / 2, myView.getHeight() / 2),
-                           new Color(colorCounter, colorCounter, colorCounter));
-            colorCounter += COLOR_TONE_INCREMENT;
+            myStatusPosition.setLocation(myView.getWidth() / 2, myView.getHeight() / 2);
+            myStatus.paint(pen, myStatusPosition, FADE_COLORS[colorCounter]);
+            colorCounter++;
+        }
+        myFrameCount++;
+        if (isShowingStatistics) {
+            paintStatistics(pen, snapshot);
+        }
+        if (myView.isReplaying()) {
+            paintTimeline(pen, myView.getReplay(), snapshot);
         }
     }
 
     /**
-     * Updates the simulation's state based on inputs
+     * Updates the simulation's state based on inputs. Called on the Swing
+     * thread; changes to the model are sent to it as Commands.
      */
-    public void update (List<Environment> environmentForces) {
+    public void update () {
         keyCounter++;
-        checkInputs(environmentForces);
+        checkInputs();
         checkResize(myView.getSize());
     }
 
     /**
-     * Checks whether a key was pressed and apply its effects
+     * Shows the given force's new status for a moment.
      */
-    private void checkInputs (List<Environment> environmentForces) {
+    public void showStatus (String description, String status) {
+        myLabelDescription = description;
+        myStatus.setText(description + " " + status);
+        colorCounter = 0;
+    }
 
-        if (keyCounter < KEY_DELAY) { return; }
+    // refresh the statistics text now and then, so its layout is usually reused
+    private void paintStatistics (Graphics2D pen, RenderSnapshot snapshot) {
+        long now = System.nanoTime();
+        if (now - myStatisticsTime >= STATISTICS_INTERVAL) {
+            double framesPerSecond = myFrameCount * NANOS_PER_SECOND / (now - myStatisticsTime);
+            myStatistics.setText(String.format("%d masses  %d springs  %.2f ms/step  %.0f fps",
+                                               snapshot.getMassCount(),
+                                               snapshot.getSpringCount(),
+                                               snapshot.getStepSeconds() * MILLIS_PER_SECOND,
+                                               framesPerSecond));
+            myFrameCount = 0;
+            myStatisticsTime = now;
+        }
+        myStatisticsPosition.setLocation(myView.getWidth() / 2, STATISTICS_TOP);
+        myStatistics.paint(pen, myStatisticsPosition, Color.DARK_GRAY);
+    }
 
-        int key = myView.getLastKeyPressed();
+    // how far through the recording playback is, and at what speed
+    private void paintTimeline (Graphics2D pen, Replay replay, RenderSnapshot snapshot) {
+        int top = myView.getHeight() - TIMELINE_HEIGHT;
+        pen.setColor(Color.LIGHT_GRAY);
+        pen.fillRect(0, top, myView.getWidth(), TIMELINE_HEIGHT);
+        pen.setColor(Color.DARK_GRAY);
+        pen.fillRect(0, top, (int) (replay.getProgress() * myView.getWidth()), TIMELINE_HEIGHT);
+        updateReplayStatus(replay, snapshot);
+        myReplayStatusPosition.setLocation(myView.getWidth() / 2, top - TIMELINE_LABEL_OFFSET);
+        myReplayStatus.paint(pen, myReplayStatusPosition, Color.DARK_GRAY);
+    }
 
-        Environment toggledForce = null;
+    // refresh the playback text when the speed or pause changes, and now and
+    // then as frames go by, so its layout is usually reused
+    private void updateReplayStatus (Replay replay, RenderSnapshot snapshot) {
+        long now = System.nanoTime();
+        int frame = replay.getFrame();
+        boolean isChanged = replay != myShownReplay || replay.getSpeed() != myShownSpeed ||
+                            replay.isPaused() != isShownPaused;
+        boolean isDue = frame != myShownFrame &&
+                        now - myReplayStatusTime >= REPLAY_STATUS_INTERVAL;
+        if (!isChanged && !isDue) { return; }
+        myReplayStatus.setText(String.format("frame %d of %d  step %d  %s%.0f steps/s",
+                                             frame + 1, replay.getFrameCount(),
+                                             snapshot.getStepCount(),
+                                             replay.isPaused() ? "paused  " : "",
+                                             replay.getSpeed()));
+        myShownReplay = replay;
+        myShownFrame = frame;
+        myShownSpeed = replay.getSpeed();
+        isShownPaused = replay.isPaused();
+        myReplayStatusTime = now;
+    }
 
-        for (Environment f : environmentForces) {
-            toggledForce = f.toggleForce(key);
-            if (toggledForce != null) {
-                myLabelDescription = toggledForce.getName();
-                myLastToggleStatus = toggledForce.isOnOff();
-                keyCounter = 0;
-                colorCounter = 0;
-                break;
-            }
+    /**
+     * Checks whether a key was pressed and apply its effects
+     */
+    private void checkInputs () {
+
+        if (keyCounter < KEY_DELAY) { return; }
+
+        final int key = myView.getLastKeyPressed();
+        if (key == Canvas.NO_KEY_PRESSED) { return; }
+        if (myView.isReplaying()) {
+            // nothing reaches the model while a recording is played back
+            keyCounter = 0;
+            checkReplayInputs(myView.getReplay(), key);
+            checkViewInputs(key);
+            return;
+        }
+        if (key != KeyEvent.VK_UP && key != KeyEvent.VK_DOWN) {
+            keyCounter = 0;
+            postToggle(key);
         }
         checkResizeInputs(key);
         checkAssemblyHandling(key);
+        checkViewInputs(key);
+    }
+
+    // toggles the force for the given key on the model's thread, then shows its status here
+    private void postToggle (final int key) {
+        myView.post(new Command() {
+            public void execute (Model model) {
+                Environment toggledForce = model.toggleForce(key);
+                if (toggledForce != null) {
+                    final String name = toggledForce.getName();
+                    final String status = toggledForce.isOnOff();
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run () {
+                            showStatus(name, status);
+                        }
+                    });
+                }
+            }
+        });
     }
 
     private void checkAssemblyHandling (int key) {
@@ -96,9 +211,54 @@ public class Control {
             myView.loadModel();
         }
         else if (key == KeyEvent.VK_C) {
-            myLabelDescription = "Assemblies Cleared";
+            showStatus("Assemblies Cleared", "");
             myView.clear();
         }
+        else if (key == KeyEvent.VK_S) {
+            myView.saveCheckpoint();
+        }
+        else if (key == KeyEvent.VK_R) {
+            myView.restoreCheckpoint();
+        }
+        else if (key == KeyEvent.VK_T) {
+            myView.toggleRecording();
+        }
+        else if (key == KeyEvent.VK_P) {
+            showStatus("Playback", myView.toggleReplay() ? "On" : "Off");
+        }
+    }
+
+    private void checkReplayInputs (Replay replay, int key) {
+        if (key == KeyEvent.VK_P) {
+            showStatus("Playback", myView.toggleReplay() ? "On" : "Off");
+        }
+        else if (key == KeyEvent.VK_SPACE) {
+            replay.togglePaused();
+        }
+        else if (key == KeyEvent.VK_RIGHT) {
+            replay.skipFrames(1);
+        }
+        else if (key == KeyEvent.VK_LEFT) {
+            replay.skipFrames(-1);
+        }
+        else if (key == KeyEvent.VK_CLOSE_BRACKET) {
+            replay.changeSpeed(SPEED_FACTOR);
+        }
+        else if (key == KeyEvent.VK_OPEN_BRACKET) {
+            replay.changeSpeed(1 / SPEED_FACTOR);
+        }
+        else if (key == KeyEvent.VK_BACK_SLASH) {
+            replay.changeSpeed(-1);
+        }
+    }
+
+    private void checkViewInputs (int key) {
+        if (key == KeyEvent.VK_HOME) {
+            myView.getViewport().reset();
+        }
+        else if (key == KeyEvent.VK_H) {
+            isShowingStatistics = !isShowingStatistics;
+        }
     }
 
     private void checkResizeInputs (int key) {
@@ -127,4 +287,14 @@ public class Control {
             pixelsToResize += RATE_OF_RESIZE;
         }
     }
+
+    // grays from black toward white, one step of the fade per frame
+    private static Color[] createFadeColors () {
+        Color[] colors = new Color[MAX_COLOR_TONE / COLOR_TONE_INCREMENT + 1];
+        for (int k = 0; k < colors.length; k++) {
+            int tone = k * COLOR_TONE_INCREMENT;
+            colors[k] = new Color(tone, tone, tone);
+        }
+        return colors;
+    }
 }
@@ -1,7 +1,9 @@
 package simulation;
 
 import java.awt.Dimension;
-import java.util.List;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 
 /**
@@ -12,6 +14,12 @@ import java.util.List;
  * 
  */
 public abstract class Environment {
+    // kinds of force, as written by write
+    protected static final int GRAVITY = 1;
+    protected static final int VISCOSITY = 2;
+    protected static final int CENTER_MASS = 3;
+    protected static final int WALL = 4;
+    protected static final int MUTUAL_ATTRACTION = 5;
 
     protected static Dimension myBounds;
     protected boolean isForceOn = true;
@@ -45,6 +53,64 @@ public abstract class Environment {
         return myName;
     }
 
+    /**
+     * Writes the kind of this force, its settings and whether it is on, so
+     * that read can make an identical force.
+     */
+    public void write (DataOutput out) throws IOException {
+        double[] settings = getSettings();
+        out.writeByte(getKind());
+        out.writeBoolean(isForceOn);
+        out.writeByte(settings.length);
+        for (double value : settings) {
+            out.writeDouble(value);
+        }
+    }
+
+    /**
+     * Makes a force identical to one written by write.
+     */
+    public static Environment read (DataInput in) throws IOException {
+        int kind = in.readByte();
+        boolean isOn = in.readBoolean();
+        double[] settings = new double[in.readByte()];
+        for (int k = 0; k < settings.length; k++) {
+            settings[k] = in.readDouble();
+        }
+        Environment result;
+        if (kind == GRAVITY) {
+            result = new GravityForce(settings[0], settings[1]);
+        }
+        else if (kind == VISCOSITY) {
+            result = new ViscosityForce(settings[0]);
+        }
+        else if (kind == CENTER_MASS) {
+            result = new CenterMassForce(settings[0], settings[1]);
+        }
+        else if (kind == WALL) {
+            result = new WallRepulsionForce((int) settings[0], settings[1], settings[2],
+                                            settings[3]);
+        }
+        else if (kind == MUTUAL_ATTRACTION) {
+            result = new MutualAttractionForce(settings[0], settings[1], settings[2]);
+        }
+        else {
+            throw new IOException("unknown kind of force: " + kind);
+        }
+        result.isForceOn = isOn;
+        return result;
+    }
+
+    /**
+     * @return which kind of force this is, for write
+     */
+    protected abstract int getKind ();
+
+    /**
+     * @return values this force was constructed with, in constructor order
+     */
+    protected abstract double[] getSettings ();
+
     /**
      * toggles the force of the object on and off
      * 
@@ -55,8 +121,8 @@ public abstract class Environment {
     /**
      * Makes a force subclass apply its own force on each mass
      * 
-     * @param List of masses to have force applied to them
+     * @param particles store of the masses to have force applied to them
      */
-    public abstract void applyForce (List<Mass> masses);
+    public abstract void applyForce (ParticleStore particles);
 
 }
@@ -1,29 +1,30 @@
 package simulation;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
-import javax.swing.JFileChooser;
+import java.io.IOException;
+import util.TokenReader;
 
 
 /**
  * Loads all the information from the data files
  * Passes all environment information to Environment class
  * and creates the necessary masses, springs, and muscles
+ *
+ * Files are read with a TokenReader, so even very large assemblies load
+ * without creating objects per line, and mistakes are reported with the
+ * line they are on. Assemblies are read by an AssemblyReader into packed
+ * arrays and added to the model in one go.
  * 
  * @author Danny Goodman, Henrique Moraes, Thomas Varner
  */
 public class Factory {
     // data file keywords
-    private static final String MASS_KEYWORD = "mass";
-    private static final String SPRING_KEYWORD = "spring";
     private static final String GRAVITY_KEYWORD = "gravity";
     private static final String VISCOSITY_KEYWORD = "viscosity";
     private static final String WALL_KEYWORD = "wall";
     private static final String CENTER_MASS_KEYWORD = "centermass";
-    private static final String MUSCLE_KEYWORD = "muscle";
+    private static final String INTEGRATOR_KEYWORD = "integrator";
+    private static final String MUTUAL_KEYWORD = "mutual";
 
     // default values
     private static final double DEFAULT_GRAVITY_DIRECTION = 90;
@@ -33,130 +34,104 @@ public class Factory {
     private static final double DEFAULT_WALL_EXPONENT = 0;
     private static final double DEFAULT_CENTERMASS_MAGNITUDE = 10;
     private static final double DEFAULT_CENTERMASS_EXPONENT = 0;
-
-    @SuppressWarnings("unused")
-    private static final JFileChooser INPUT_CHOOSER =
-            new JFileChooser(System.getProperties().getProperty("user.dir"));
+    private static final double DEFAULT_MUTUAL_MAGNITUDE = 1;
 
     // to ease constructing wall statuses
     private static final double[] WALL_FORCE_DIRECTIONS = {
         WallRepulsionForce.DOWN_DIRECTION, WallRepulsionForce.LEFT_DIRECTION,
         WallRepulsionForce.UP_DIRECTION, WallRepulsionForce.RIGHT_DIRECTION };
 
-    // mass IDs
-    private Map<Integer, Mass> myMasses = new HashMap<Integer, Mass>();
+    // threads used to read large assemblies
+    private int myThreadCount = Runtime.getRuntime().availableProcessors();
 
-    private Model myModel;
+    /**
+     * Sets the number of threads used to read large text assemblies.
+     * 
+     * @param threadCount : number of threads, at least one
+     */
+    public void setThreadCount (int threadCount) {
+        myThreadCount = threadCount;
+    }
 
     /**
-     * Loads an assembly from a data file.
+     * Loads an assembly from a data file, either a text file or a binary file
+     * written by AssemblyFile.
      * 
      * @param model : the model it will load the assembly into.
      * @param modelFile : the file the assembly is loaded from.
+     * @throws IllegalArgumentException if the file is not formatted correctly
      */
     public void loadModel (Model model, File modelFile) {
         try {
-            myModel = model;
-            Scanner input = new Scanner(modelFile);
-            while (input.hasNext()) {
-                Scanner line = new Scanner(input.nextLine());
-                if (line.hasNext()) {
-                    String type = line.next();
-                    if (MASS_KEYWORD.equals(type)) {
-                        myModel.add(massCommand(line));
-                    }
-                    else if (SPRING_KEYWORD.equals(type)) {
-                        myModel.add(springCommand(line));
-                    }
-                    else if (MUSCLE_KEYWORD.equals(type)) {
-                        myModel.add(muscleCommand(line));
-                    }
-                }
-            }
-            input.close();
+            model.add(readAssembly(modelFile));
+            // place connected masses next to each other in memory
+            model.reorder();
         }
-        catch (FileNotFoundException e) {
+        catch (IOException e) {
             // should not happen because File came from user selection
             e.printStackTrace();
         }
     }
 
+    /**
+     * Reads the masses, springs and muscles of a data file, either a text
+     * file or a binary file written by AssemblyFile.
+     * 
+     * @param modelFile : the file the assembly is read from.
+     * @throws IllegalArgumentException if the file is not formatted correctly
+     */
+    public Assembly readAssembly (File modelFile) throws IOException {
+        if (AssemblyFile.isBinary(modelFile)) { return AssemblyFile.read(modelFile); }
+        return new AssemblyReader(myThreadCount).read(modelFile);
+    }
+
     /**
      * Load Environment forces into the model.
      * 
      * @param model : the model it will load the assembly into.
      * @param modelFile : the file the assembly is loaded from. 
+     * @throws IllegalArgumentException if the file is not formatted correctly
      */
     public void loadEnvironment (Model model, File modelFile) {
         try {
-            Scanner input = new Scanner(modelFile);
-            while (input.hasNext()) {
-                Scanner line = new Scanner(input.nextLine());
-                if (line.hasNext()) {
-                    String type = line.next();
-                    if (GRAVITY_KEYWORD.equals(type)) {
+            TokenReader line = new TokenReader(modelFile);
+            try {
+                while (line.nextLine()) {
+                    if (line.nextIs(GRAVITY_KEYWORD)) {
                         model.add(gravityCommand(line));
                     }
-                    else if (VISCOSITY_KEYWORD.equals(type)) {
+                    else if (line.nextIs(VISCOSITY_KEYWORD)) {
                         model.add(viscosityCommand(line));
                     }
-                    else if (CENTER_MASS_KEYWORD.equals(type)) {
+                    else if (line.nextIs(CENTER_MASS_KEYWORD)) {
                         model.add(centerMassCommand(line));
                     }
-                    else if (WALL_KEYWORD.equals(type)) {
+                    else if (line.nextIs(WALL_KEYWORD)) {
                         model.add(wallCommand(line));
                     }
+                    else if (line.nextIs(MUTUAL_KEYWORD)) {
+                        model.add(mutualCommand(line));
+                    }
+                    else if (line.nextIs(INTEGRATOR_KEYWORD)) {
+                        integratorCommand(model, line);
+                    }
                 }
             }
+            finally {
+                line.close();
+            }
             // added instantiates the gravity in masses
             model.updateBounds();
-            input.close();
         }
-        catch (FileNotFoundException e) {
+        catch (IOException e) {
             // should not happen because File came from user selection
             e.printStackTrace();
         }
     }
 
-    // create mass from formatted data
-    private Mass massCommand (Scanner line) {
-        int id = line.nextInt();
-        double x = line.nextDouble();
-        double y = line.nextDouble();
-        double mass = line.nextDouble();
-        Mass result;
-        if (mass > 0) {
-            result = new Mass(x, y, mass);
-        }
-        else {
-            result = new FixedMass(x, y, mass);
-        }
-        myMasses.put(id, result);
-        return result;
-    }
-
-    // create spring from formatted data
-    private Spring springCommand (Scanner line) {
-        Mass m1 = myMasses.get(line.nextInt());
-        Mass m2 = myMasses.get(line.nextInt());
-        double restLength = line.nextDouble();
-        double ks = line.nextDouble();
-        return new Spring(m1, m2, restLength, ks);
-    }
-
-    // create muscle from formatted data
-    private Muscle muscleCommand (Scanner line) {
-        Mass m1 = myMasses.get(line.nextInt());
-        Mass m2 = myMasses.get(line.nextInt());
-        double restLength = line.nextDouble();
-        double ks = line.nextDouble();
-        double amplitude = line.nextDouble();
-        return new Muscle(m1, m2, restLength, ks, amplitude);
-    }
-
     // add gravity information to the Model
-    private GravityForce gravityCommand (Scanner line) {
-        if (!line.hasNextDouble()) {
+    private GravityForce gravityCommand (TokenReader line) {
+        if (!line.hasNextNumber()) {
             return new GravityForce(DEFAULT_GRAVITY_DIRECTION, DEFAULT_GRAVITY_MAGNITUDE);
         }
 
@@ -166,16 +141,16 @@ public class Factory {
     }
 
     // reads viscosity information
-    private ViscosityForce viscosityCommand (Scanner line) {
-        if (!line.hasNextDouble()) {
+    private ViscosityForce viscosityCommand (TokenReader line) {
+        if (!line.hasNextNumber()) {
             return new ViscosityForce(DEFAULT_VISCOSITY_SCALE);
         }
         return new ViscosityForce(line.nextDouble());
     }
 
     // reads center of mass parameters
-    private CenterMassForce centerMassCommand (Scanner line) {
-        if (!line.hasNextDouble()) {
+    private CenterMassForce centerMassCommand (TokenReader line) {
+        if (!line.hasNextNumber()) {
             return new CenterMassForce(DEFAULT_CENTERMASS_MAGNITUDE, DEFAULT_CENTERMASS_EXPONENT);
         }
 
@@ -184,10 +159,54 @@ public class Factory {
         return new CenterMassForce(magnitude, exponent);
     }
 
+    // reads mutual attraction strength and, optionally, opening angle and softening
+    private MutualAttractionForce mutualCommand (TokenReader line) {
+        if (!line.hasNextNumber()) {
+            return new MutualAttractionForce(DEFAULT_MUTUAL_MAGNITUDE);
+        }
+        double magnitude = line.nextDouble();
+        double openingAngle = MutualAttractionForce.DEFAULT_OPENING_ANGLE;
+        double softening = MutualAttractionForce.DEFAULT_SOFTENING;
+        if (line.hasNextNumber()) {
+            openingAngle = line.nextDouble();
+        }
+        if (line.hasNextNumber()) {
+            softening = line.nextDouble();
+        }
+        return new MutualAttractionForce(magnitude, openingAngle, softening);
+    }
+
+    // reads integration scheme and, optionally, time step and solver iterations
+    private void integratorCommand (Model model, TokenReader line) {
+        String name = line.next();
+        Integrator integrator;
+        try {
+            integrator = Integrator.forName(name);
+        }
+        catch (IllegalArgumentException e) {
+            throw line.error("no integrator named " + name);
+        }
+        double timeStep = model.getTimeStep();
+        if (line.hasNextNumber()) {
+            timeStep = line.nextDouble();
+            if (timeStep <= 0) {
+                throw line.error("time step must be positive: " + timeStep);
+            }
+        }
+        if (line.hasNextNumber() && integrator instanceof ImplicitEulerIntegrator) {
+            ((ImplicitEulerIntegrator) integrator).setMaxIterations(line.nextInt());
+        }
+        model.setIntegrator(integrator);
+        model.setTimeStep(timeStep);
+    }
+
     // Reads wall parameters
-    private WallRepulsionForce wallCommand (Scanner line) {
+    private WallRepulsionForce wallCommand (TokenReader line) {
         int id = line.nextInt();
-        if (!line.hasNextDouble()) {
+        if (id < 1 || id > WALL_FORCE_DIRECTIONS.length) {
+            throw line.error("no wall with ID " + id);
+        }
+        if (!line.hasNextNumber()) {
             return new WallRepulsionForce(id, WALL_FORCE_DIRECTIONS[id - 1],
                                           DEFAULT_WALL_MAGNITUDE, DEFAULT_WALL_EXPONENT);
         }
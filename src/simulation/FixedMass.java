@@ -14,20 +14,19 @@ public class FixedMass extends Mass {
     public static final Vector NO_ACCELERATION = new Vector(0, 0);
 
     /**
-     * Constructor for this class
+     * Constructor for this class. The mass is flagged as fixed in its store,
+     * so it does not add any force
      */
     public FixedMass (double x, double y, double mass) {
-        super(x, y, -mass);
+        super(x, y, -mass, true);
 
     }
 
     /**
-     * Use the given force to change this mass's acceleration.
-     * For a fixed mass, it does not add any force
+     * Creates a view of a fixed mass already in the given store.
      */
-    @Override
-    public void applyForce (Vector force) {
-        // does not do anything because mass is fixed
+    FixedMass (ParticleStore store, int index) {
+        super(store, index);
     }
 
 }
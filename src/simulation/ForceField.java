@@ -0,0 +1,32 @@
+package simulation;
+
+import java.util.List;
+
+
+/**
+ * Something that knows every force acting on the masses of a simulation,
+ * so an Integrator can ask for them at whatever state it needs.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public interface ForceField {
+
+    /**
+     * Replaces the force on every mass of the given store by the total force
+     * acting on it at the store's current positions and velocities.
+     *
+     * @param particles : store of the masses to compute forces for
+     */
+    void applyForces (ParticleStore particles);
+
+    /**
+     * @return springs between masses of the store, whose stiffness an
+     *         integrator may treat implicitly
+     */
+    List<Spring> getSprings ();
+
+    /**
+     * @return how those springs connect the masses, in the same order
+     */
+    SpringTopology getTopology ();
+}
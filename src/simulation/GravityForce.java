@@ -1,7 +1,6 @@
 package simulation;
 
 import java.awt.event.KeyEvent;
-import java.util.List;
 import util.Vector;
 
 
@@ -13,7 +12,11 @@ import util.Vector;
  */
 public class GravityForce extends Environment {
 
-    private Vector myGravity;
+    private double myAngle;
+    private double myMagnitude;
+    // force on each unit of mass
+    private double myGravityX;
+    private double myGravityY;
 
     /**
      * Constructor that represents the gravity force on the model
@@ -21,7 +24,11 @@ public class GravityForce extends Environment {
      * @param magnitude magnitude of the force
      */
     public GravityForce (double angle, double magnitude) {
-        myGravity = new Vector(angle, magnitude);
+        myAngle = angle;
+        myMagnitude = magnitude;
+        Vector gravity = new Vector(angle, magnitude);
+        myGravityX = gravity.getXChange();
+        myGravityY = gravity.getYChange();
         myName = "Gravity";
     }
 
@@ -30,15 +37,24 @@ public class GravityForce extends Environment {
      * self gravity vector
      * Does not apply force if isForceOn is off
      */
-    public void applyForce (List<Mass> masses) {
+    public void applyForce (ParticleStore particles) {
         if (!isForceOn) { return; }
-        for (Mass m : masses) {
-            Vector massGravity = new Vector(myGravity);
-            massGravity.scale(m.getMass());
-            m.applyForce(massGravity);
+        for (int i = 0; i < particles.size(); i++) {
+            double mass = particles.getMass(i);
+            particles.applyForce(i, myGravityX * mass, myGravityY * mass);
         }
     }
 
+    @Override
+    protected int getKind () {
+        return GRAVITY;
+    }
+
+    @Override
+    protected double[] getSettings () {
+        return new double[] { myAngle, myMagnitude };
+    }
+
     @Override
     public final Environment toggleForce (final int key) {
         if (!(key == KeyEvent.VK_G)) { return null; }
@@ -0,0 +1,354 @@
+package simulation;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Backward (implicit) Euler for stiff spring networks. Spring forces are
+ * treated implicitly, which keeps stiff assemblies stable at time steps far
+ * larger than the explicit schemes allow; all other forces are explicit.
+ *
+ * Each step solves (M - h^2 J) dv = h (f + h J v) for the change in velocity
+ * dv, where h is the time step, M the masses, f the current forces and J the
+ * Jacobian of the spring forces with respect to position. The system is solved
+ * with a conjugate gradient method preconditioned by the inverse of its 2x2
+ * diagonal blocks, without ever forming the matrix: J is kept as one 2x2 block
+ * per spring, applied through the CSR adjacency of the spring topology. The
+ * solve starts from the previous step's answer. Fixed masses are constraints:
+ * their change in velocity is held at zero.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class ImplicitEulerIntegrator extends Integrator {
+    public static final int DEFAULT_MAX_ITERATIONS = 50;
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+
+    private int myMaxIterations;
+    private double myTolerance;
+    private int myLastIterations;
+    // Jacobian block of each spring: force on its start mass per unit of
+    // displacement of its start mass relative to its end mass
+    private double[] myJacobianXX;
+    private double[] myJacobianXY;
+    private double[] myJacobianYY;
+    // inverse of each mass's 2x2 diagonal block, for preconditioning
+    private double[] myInverseXX;
+    private double[] myInverseXY;
+    private double[] myInverseYY;
+    // change in velocity, kept to start the next solve from
+    private double[] myDeltaX;
+    private double[] myDeltaY;
+    private ParticleStore myParticles;
+    private int myVersion;
+    // conjugate gradient work vectors
+    private double[] myRightX;
+    private double[] myRightY;
+    private double[] myResidualX;
+    private double[] myResidualY;
+    private double[] myDirectionX;
+    private double[] myDirectionY;
+    private double[] myProductX;
+    private double[] myProductY;
+    private double[] myPreconditionedX;
+    private double[] myPreconditionedY;
+
+    public ImplicitEulerIntegrator () {
+        this(DEFAULT_MAX_ITERATIONS, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Create an implicit integrator with the given solver budget.
+     *
+     * @param maxIterations : most conjugate gradient iterations per step
+     * @param tolerance : stop once the residual falls below this fraction of
+     *        the right hand side
+     */
+    public ImplicitEulerIntegrator (int maxIterations, double tolerance) {
+        super(IMPLICIT_EULER);
+        setMaxIterations(maxIterations);
+        myTolerance = tolerance;
+    }
+
+    /**
+     * Sets the most conjugate gradient iterations taken per step.
+     */
+    public void setMaxIterations (int maxIterations) {
+        myMaxIterations = Math.max(1, maxIterations);
+    }
+
+    /**
+     * @return the most conjugate gradient iterations taken per step
+     */
+    public int getMaxIterations () {
+        return myMaxIterations;
+    }
+
+    /**
+     * @return number of conjugate gradient iterations the last step took
+     */
+    public int getLastIterations () {
+        return myLastIterations;
+    }
+
+    @Override
+    public void step (ForceField forces, ParticleStore particles, double timeStep) {
+        int size = particles.size();
+        SpringTopology topology = forces.getTopology();
+        ensureBuffers(size, topology.getSpringCount());
+        if (particles != myParticles || particles.getVersion() != myVersion) {
+            // previous answer belongs to other masses
+            for (int i = 0; i < size; i++) {
+                myDeltaX[i] = 0;
+                myDeltaY[i] = 0;
+            }
+            myParticles = particles;
+            myVersion = particles.getVersion();
+        }
+        forces.applyForces(particles);
+        computeJacobian(forces.getSprings(), topology, particles);
+        double h = timeStep;
+        double hSquared = h * h;
+        computePreconditioner(topology, particles, hSquared);
+
+        // right hand side: h (f + h J v)
+        double[] vx = particles.getVelocityX();
+        double[] vy = particles.getVelocityY();
+        multiplyJacobian(topology, particles, vx, vy, myRightX, myRightY);
+        double[] fx = particles.getForceX();
+        double[] fy = particles.getForceY();
+        for (int i = 0; i < size; i++) {
+            myRightX[i] = h * (fx[i] + h * myRightX[i]);
+            myRightY[i] = h * (fy[i] + h * myRightY[i]);
+        }
+        filter(particles, myRightX, myRightY);
+        filter(particles, myDeltaX, myDeltaY);
+        solve(topology, particles, hSquared);
+
+        double[] x = particles.getPositionX();
+        double[] y = particles.getPositionY();
+        for (int i = 0; i < size; i++) {
+            vx[i] += myDeltaX[i];
+            vy[i] += myDeltaY[i];
+            x[i] += vx[i] * h;
+            y[i] += vy[i] * h;
+        }
+    }
+
+    // preconditioned conjugate gradient on (M - h^2 J) dv = rhs
+    private void solve (SpringTopology topology, ParticleStore particles, double hSquared) {
+        int size = particles.size();
+        multiplySystem(topology, particles, hSquared, myDeltaX, myDeltaY, myProductX, myProductY);
+        for (int i = 0; i < size; i++) {
+            myResidualX[i] = myRightX[i] - myProductX[i];
+            myResidualY[i] = myRightY[i] - myProductY[i];
+        }
+        precondition(size, myResidualX, myResidualY);
+        System.arraycopy(myPreconditionedX, 0, myDirectionX, 0, size);
+        System.arraycopy(myPreconditionedY, 0, myDirectionY, 0, size);
+        double residualDotPreconditioned = dot(size, myResidualX, myResidualY,
+                                               myPreconditionedX, myPreconditionedY);
+        double limit = myTolerance * myTolerance *
+                       dot(size, myRightX, myRightY, myRightX, myRightY);
+        myLastIterations = 0;
+        while (myLastIterations < myMaxIterations &&
+               dot(size, myResidualX, myResidualY, myResidualX, myResidualY) > limit) {
+            multiplySystem(topology, particles, hSquared,
+                           myDirectionX, myDirectionY, myProductX, myProductY);
+            double curvature = dot(size, myDirectionX, myDirectionY, myProductX, myProductY);
+            if (curvature <= 0) {
+                break;
+            }
+            double alpha = residualDotPreconditioned / curvature;
+            for (int i = 0; i < size; i++) {
+                myDeltaX[i] += alpha * myDirectionX[i];
+                myDeltaY[i] += alpha * myDirectionY[i];
+                myResidualX[i] -= alpha * myProductX[i];
+                myResidualY[i] -= alpha * myProductY[i];
+            }
+            precondition(size, myResidualX, myResidualY);
+            double next = dot(size, myResidualX, myResidualY,
+                              myPreconditionedX, myPreconditionedY);
+            double beta = next / residualDotPreconditioned;
+            residualDotPreconditioned = next;
+            for (int i = 0; i < size; i++) {
+                myDirectionX[i] = myPreconditionedX[i] + beta * myDirectionX[i];
+                myDirectionY[i] = myPreconditionedY[i] + beta * myDirectionY[i];
+            }
+            myLastIterations++;
+        }
+    }
+
+    // the stiffness of a compressed spring across its length is dropped,
+    // which keeps the system positive definite
+    private void computeJacobian (List<Spring> springs, SpringTopology topology,
+                                  ParticleStore particles) {
+        double[] x = particles.getPositionX();
+        double[] y = particles.getPositionY();
+        for (int s = 0; s < topology.getSpringCount(); s++) {
+            int start = topology.getStart(s);
+            int end = topology.getEnd(s);
+            double dx = x[start] - x[end];
+            double dy = y[start] - y[end];
+            double length = Math.sqrt(dx * dx + dy * dy);
+            if (length == 0) {
+                myJacobianXX[s] = 0;
+                myJacobianXY[s] = 0;
+                myJacobianYY[s] = 0;
+                continue;
+            }
+            Spring spring = springs.get(s);
+            double ux = dx / length;
+            double uy = dy / length;
+            double lateral = Math.max(0, 1 - spring.getLength() / length);
+            double k = spring.getK();
+            myJacobianXX[s] = -k * (ux * ux + lateral * (1 - ux * ux));
+            myJacobianXY[s] = -k * (ux * uy * (1 - lateral));
+            myJacobianYY[s] = -k * (uy * uy + lateral * (1 - uy * uy));
+        }
+    }
+
+    private void computePreconditioner (SpringTopology topology, ParticleStore particles,
+                                        double hSquared) {
+        int[] offsets = topology.getOffsets();
+        int[] springs = topology.getSprings();
+        double[] inverseMass = particles.getInverseMass();
+        for (int i = 0; i < particles.size(); i++) {
+            if (inverseMass[i] == 0) {
+                myInverseXX[i] = 0;
+                myInverseXY[i] = 0;
+                myInverseYY[i] = 0;
+                continue;
+            }
+            double mass = 1 / inverseMass[i];
+            double xx = mass;
+            double xy = 0;
+            double yy = mass;
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                int s = springs[k];
+                xx -= hSquared * myJacobianXX[s];
+                xy -= hSquared * myJacobianXY[s];
+                yy -= hSquared * myJacobianYY[s];
+            }
+            double determinant = xx * yy - xy * xy;
+            myInverseXX[i] = yy / determinant;
+            myInverseXY[i] = -xy / determinant;
+            myInverseYY[i] = xx / determinant;
+        }
+    }
+
+    private void precondition (int size, double[] inX, double[] inY) {
+        for (int i = 0; i < size; i++) {
+            myPreconditionedX[i] = myInverseXX[i] * inX[i] + myInverseXY[i] * inY[i];
+            myPreconditionedY[i] = myInverseXY[i] * inX[i] + myInverseYY[i] * inY[i];
+        }
+    }
+
+    // out = J in
+    private void multiplyJacobian (SpringTopology topology, ParticleStore particles,
+                                   double[] inX, double[] inY, double[] outX, double[] outY) {
+        int[] offsets = topology.getOffsets();
+        int[] neighbors = topology.getNeighbors();
+        int[] springs = topology.getSprings();
+        for (int i = 0; i < particles.size(); i++) {
+            double sumX = 0;
+            double sumY = 0;
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                int j = neighbors[k];
+                int s = springs[k];
+                double dx = inX[i] - inX[j];
+                double dy = inY[i] - inY[j];
+                sumX += myJacobianXX[s] * dx + myJacobianXY[s] * dy;
+                sumY += myJacobianXY[s] * dx + myJacobianYY[s] * dy;
+            }
+            outX[i] = sumX;
+            outY[i] = sumY;
+        }
+    }
+
+    // out = (M - h^2 J) in, with fixed masses held still
+    private void multiplySystem (SpringTopology topology, ParticleStore particles,
+                                 double hSquared, double[] inX, double[] inY,
+                                 double[] outX, double[] outY) {
+        multiplyJacobian(topology, particles, inX, inY, outX, outY);
+        double[] inverseMass = particles.getInverseMass();
+        for (int i = 0; i < particles.size(); i++) {
+            if (inverseMass[i] == 0) {
+                outX[i] = 0;
+                outY[i] = 0;
+            }
+            else {
+                outX[i] = inX[i] / inverseMass[i] - hSquared * outX[i];
+                outY[i] = inY[i] / inverseMass[i] - hSquared * outY[i];
+            }
+        }
+    }
+
+    private static void filter (ParticleStore particles, double[] x, double[] y) {
+        double[] inverseMass = particles.getInverseMass();
+        for (int i = 0; i < particles.size(); i++) {
+            if (inverseMass[i] == 0) {
+                x[i] = 0;
+                y[i] = 0;
+            }
+        }
+    }
+
+    private static double dot (int size, double[] ax, double[] ay, double[] bx, double[] by) {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += ax[i] * bx[i] + ay[i] * by[i];
+        }
+        return sum;
+    }
+
+    // the previous answer is where the solver starts from
+    @Override
+    double[][] saveState (ParticleStore particles) {
+        if (particles != myParticles || particles.getVersion() != myVersion) {
+            return super.saveState(particles);
+        }
+        return new double[][] { Arrays.copyOf(myDeltaX, particles.size()),
+                                Arrays.copyOf(myDeltaY, particles.size()) };
+    }
+
+    @Override
+    void restoreState (ParticleStore particles, double[][] state) {
+        if (state.length == 0) { return; }
+        myDeltaX = state[0];
+        myDeltaY = state[1];
+        myParticles = particles;
+        myVersion = particles.getVersion();
+    }
+
+    private void ensureBuffers (int size, int springs) {
+        myJacobianXX = ensureCapacity(myJacobianXX, springs);
+        myJacobianXY = ensureCapacity(myJacobianXY, springs);
+        myJacobianYY = ensureCapacity(myJacobianYY, springs);
+        myInverseXX = ensureCapacity(myInverseXX, size);
+        myInverseXY = ensureCapacity(myInverseXY, size);
+        myInverseYY = ensureCapacity(myInverseYY, size);
+        myDeltaX = keepCapacity(myDeltaX, size);
+        myDeltaY = keepCapacity(myDeltaY, size);
+        myRightX = ensureCapacity(myRightX, size);
+        myRightY = ensureCapacity(myRightY, size);
+        myResidualX = ensureCapacity(myResidualX, size);
+        myResidualY = ensureCapacity(myResidualY, size);
+        myDirectionX = ensureCapacity(myDirectionX, size);
+        myDirectionY = ensureCapacity(myDirectionY, size);
+        myProductX = ensureCapacity(myProductX, size);
+        myProductY = ensureCapacity(myProductY, size);
+        myPreconditionedX = ensureCapacity(myPreconditionedX, size);
+        myPreconditionedY = ensureCapacity(myPreconditionedY, size);
+    }
+
+    // like ensureCapacity, but keeps the values already there
+    private static double[] keepCapacity (double[] buffer, int size) {
+        if (buffer != null && buffer.length >= size) { return buffer; }
+        double[] result = new double[size];
+        if (buffer != null) {
+            System.arraycopy(buffer, 0, result, 0, buffer.length);
+        }
+        return result;
+    }
+}
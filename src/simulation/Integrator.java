@@ -0,0 +1,95 @@
+package simulation;
+
+
+/**
+ * Advances the positions and velocities of every mass by one fixed time step,
+ * given the forces acting on them. Subclasses implement different numerical
+ * schemes, trading the number of force evaluations per step for accuracy and
+ * the size of step that stays stable.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public abstract class Integrator {
+    // default physics step, in seconds
+    public static final double DEFAULT_TIME_STEP = 1.0 / 200;
+
+    // names used to select a scheme in data files
+    public static final String SYMPLECTIC_EULER = "euler";
+    public static final String VELOCITY_VERLET = "verlet";
+    public static final String RUNGE_KUTTA = "rk4";
+    public static final String IMPLICIT_EULER = "implicit";
+
+    private String myName;
+
+    /**
+     * Create an integrator known by the given name.
+     */
+    protected Integrator (String name) {
+        myName = name;
+    }
+
+    /**
+     * Returns the integrator known by the given name.
+     *
+     * @param name : one of SYMPLECTIC_EULER, VELOCITY_VERLET, RUNGE_KUTTA
+     *        or IMPLICIT_EULER
+     */
+    public static Integrator forName (String name) {
+        if (SYMPLECTIC_EULER.equals(name)) {
+            return new SymplecticEulerIntegrator();
+        }
+        else if (VELOCITY_VERLET.equals(name)) {
+            return new VelocityVerletIntegrator();
+        }
+        else if (RUNGE_KUTTA.equals(name)) {
+            return new RungeKuttaIntegrator();
+        }
+        else if (IMPLICIT_EULER.equals(name)) {
+            return new ImplicitEulerIntegrator();
+        }
+        throw new IllegalArgumentException("unknown integrator: " + name);
+    }
+
+    /**
+     * @return the name of this integrator
+     */
+    public String getName () {
+        return myName;
+    }
+
+    /**
+     * Moves every mass in the given store forward by the given time.
+     *
+     * @param forces : computes the forces on the masses at any state
+     * @param particles : store of the masses to move
+     * @param timeStep : time to move forward by, in seconds
+     */
+    public abstract void step (ForceField forces, ParticleStore particles, double timeStep);
+
+    /**
+     * Returns copies of the values this integrator carries from one step to
+     * the next for the masses of the given store, one array per quantity with
+     * one value per mass, so that a checkpoint can resume exactly where it
+     * left off. Most integrators carry nothing.
+     */
+    double[][] saveState (ParticleStore particles) {
+        return new double[0][];
+    }
+
+    /**
+     * Carries on from values saveState returned, for the masses of the given
+     * store as they are now.
+     */
+    void restoreState (ParticleStore particles, double[][] state) {
+        // nothing carried from step to step
+    }
+
+    /**
+     * Returns the given buffer if it can hold the given number of values,
+     * or a new one that can.
+     */
+    protected static double[] ensureCapacity (double[] buffer, int size) {
+        if (buffer != null && buffer.length >= size) { return buffer; }
+        return new double[size];
+    }
+}
@@ -6,28 +6,26 @@ import java.awt.Graphics2D;
 import java.awt.Point;
 
 import util.Location;
-import util.Pixmap;
-import util.Sprite;
 import util.Vector;
 
 
 /**
- * XXX.
- * 
+ * Thin view of a single mass whose state lives in a ParticleStore.
+ *
+ * A mass that has not been added to a Model keeps its state in a store of its own;
+ * once added, it refers to its slot in the Model's store.
+ *
  * @author Henrique Moraes, Thomas Varner, Danny Goodman
  */
-public class Mass extends Sprite {
+public class Mass {
     // reasonable default values
-    public static final Dimension DEFAULT_SIZE = new Dimension(16, 16);
-    public static final Pixmap DEFUALT_IMAGE = new Pixmap("mass.gif");
+    public static final Dimension DEFAULT_SIZE = ParticleStore.PARTICLE_SIZE;
 
-    private double myMass;
-    private Vector myAcceleration;
+    private ParticleStore myStore;
+    private int myIndex;
 
     public Mass (double x, double y, double mass) {
-        super(DEFUALT_IMAGE, new Location(x, y), DEFAULT_SIZE);
-        myMass = mass;
-        myAcceleration = new Vector();
+        this(x, y, mass, false);
     }
 
     /**
@@ -39,98 +37,152 @@ public class Mass extends Sprite {
         this(point.x, point.y, mass);
     }
 
+    /**
+     * Creates a mass that keeps its state in a store of its own.
+     */
+    protected Mass (double x, double y, double mass, boolean fixed) {
+        myStore = new ParticleStore(1);
+        myIndex = myStore.add(x, y, mass, fixed);
+    }
+
+    /**
+     * Creates a view of a mass already in the given store.
+     */
+    Mass (ParticleStore store, int index) {
+        myStore = store;
+        myIndex = index;
+    }
+
+    /**
+     * Moves this mass's state into the given store, so this becomes a view of its
+     * slot there.
+     */
+    void attach (ParticleStore store) {
+        if (store == myStore) { return; }
+        myIndex = store.add(myStore, myIndex);
+        myStore = store;
+    }
+
+    /**
+     * @return handle of this mass in its store
+     */
+    public int getIndex () {
+        return myIndex;
+    }
+
+    /**
+     * Follows this mass to its new handle after its store was renumbered.
+     */
+    void setIndex (int index) {
+        myIndex = index;
+    }
+
+    /**
+     * @return ID of this mass in the file it was loaded from,
+     *         or ParticleStore.NO_ID
+     */
+    public int getId () {
+        return myStore.getId(myIndex);
+    }
+
+    /**
+     * Sets ID of this mass in the file it was loaded from.
+     */
+    public void setId (int id) {
+        myStore.setId(myIndex, id);
+    }
+
     /**
      * @return mass of this mass
      */
     public double getMass () {
-        return myMass;
+        return myStore.getMass(myIndex);
     }
 
     /**
-     * Returns the acceleration vector of this mass
+     * Returns mass's x coordinate in pixels.
      */
-    public Vector getAcceleration () {
-        return myAcceleration;
+    public double getX () {
+        return myStore.getX(myIndex);
     }
 
-    @Override
-    public void update (double elapsedTime, Dimension bounds) {
-        checkBoundaries(bounds);
+    /**
+     * Returns mass's y coordinate in pixels.
+     */
+    public double getY () {
+        return myStore.getY(myIndex);
+    }
 
-        applyForce(getBounce(bounds));
-        // convert force back into Mover's velocity
-        getVelocity().sum(myAcceleration);
-        myAcceleration.reset();
-        // move mass by velocity
-        super.update(elapsedTime, bounds);
+    /**
+     * Returns a copy of the center of the mass
+     */
+    public Location getCenter () {
+        return new Location(getX(), getY());
+    }
+
+    /**
+     * Resets mass's center.
+     */
+    public void setCenter (double x, double y) {
+        myStore.setCenter(myIndex, x, y);
     }
 
     /**
-     * checks if mass tries to move out of the screen and keeps it
-     * within boundaries. This method is an attempt to minimize the
-     * bouncing bug
+     * Returns a copy of mass's velocity.
      */
-    private void checkBoundaries (Dimension bounds) {
-        double centerY = getCenter().y;
-        double centerX = getCenter().x;
-        if (getTop() <= 0) {
-            setCenter(centerX, DEFAULT_SIZE.getHeight() / 2);
-        }
+    public Vector getVelocity () {
+        return myStore.getVelocity(myIndex);
+    }
 
-        if (getRight() >= bounds.getWidth()) {
-            setCenter(bounds.getWidth() - DEFAULT_SIZE.getWidth() / 2, centerY);
-        }
+    /**
+     * Returns x component of mass's velocity, without making a Vector.
+     */
+    public double getVelocityX () {
+        return myStore.getVelocityX(myIndex);
+    }
 
-        if (getBottom() >= bounds.getHeight()) {
-            setCenter(centerX, bounds.getHeight() - DEFAULT_SIZE.getHeight() / 2);
-        }
+    /**
+     * Returns y component of mass's velocity, without making a Vector.
+     */
+    public double getVelocityY () {
+        return myStore.getVelocityY(myIndex);
+    }
 
-        if (getLeft() <= 0) {
-            setCenter(DEFAULT_SIZE.getWidth() / 2, centerY);
-        }
+    /**
+     * Returns a copy of the acceleration vector of this mass
+     */
+    public Vector getAcceleration () {
+        return myStore.getForce(myIndex);
     }
 
     /**
-     * XXX.
+     * Draws this mass as a circle around its center.
      */
-    @Override
     public void paint (Graphics2D pen) {
         pen.setColor(Color.BLACK);
-        pen.fillOval((int) getLeft(), (int) getTop(), (int) getWidth(), (int) getHeight());
+        pen.fillOval((int) (getX() - DEFAULT_SIZE.width / 2),
+                     (int) (getY() - DEFAULT_SIZE.height / 2),
+                     DEFAULT_SIZE.width, DEFAULT_SIZE.height);
     }
 
     /**
      * Use the given force to change this mass's acceleration.
      */
     public void applyForce (Vector force) {
-        myAcceleration.sum(force);
+        myStore.applyForce(myIndex, force);
+    }
+
+    /**
+     * Adds the given change in x and y to this mass's acceleration.
+     */
+    public void applyForce (double dx, double dy) {
+        myStore.applyForce(myIndex, dx, dy);
     }
 
     /**
      * Convenience method.
      */
     public double distance (Mass other) {
-        // this is a little awkward, so hide it
-        return new Location(getX(), getY()).distance(new Location(other.getX(), other.getY()));
-    }
-
-    // check for move out of bounds
-    private Vector getBounce (Dimension bounds) {
-        final double IMPULSE_MAGNITUDE = 2;
-        Vector impulse = new Vector();
-        if (getLeft() <= 0) {
-            impulse = new Vector(RIGHT_DIRECTION, IMPULSE_MAGNITUDE);
-        }
-        else if (getRight() >= bounds.width) {
-            impulse = new Vector(LEFT_DIRECTION, IMPULSE_MAGNITUDE);
-        }
-        if (getTop() <= 0) {
-            impulse = new Vector(DOWN_DIRECTION, IMPULSE_MAGNITUDE);
-        }
-        else if (getBottom() >= bounds.height) {
-            impulse = new Vector(UP_DIRECTION, IMPULSE_MAGNITUDE);
-        }
-        impulse.scale(getVelocity().getRelativeMagnitude(impulse));
-        return impulse;
+        return Vector.distanceBetween(getX() - other.getX(), getY() - other.getY());
     }
 }
@@ -2,116 +2,522 @@ package simulation;
 
 import java.awt.Dimension;
 import java.awt.Graphics2D;
-import java.awt.Point;
+import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import view.Canvas;
 
 
 /**
  * Model class. Contains all assemblies and their various
  * masses and springs.
  * 
+ * A model is not safe to share between threads: when it runs on a thread
+ * of its own, other threads send it Commands and draw RenderSnapshots of it.
+ * 
  * @author Henrique Moraes, Danny Goodman, Thomas Varner
  */
 public class Model {
     // constants for mouse dragging
     private static final double DEFAULT_MASS = 10;
     private static final double DEFAULT_KVAL = 0.5;
+    // most physics steps taken per frame before giving up on catching up
+    private static final int DEFAULT_MAX_SUBSTEPS = 32;
+    private static final double NANOS_PER_SECOND = 1e9;
 
-    // bounds and input for game
-    private Canvas myView;
+    // area the masses live in
+    private Dimension myBounds;
 
     // for mouse dragging
     private boolean myMouseDragging;
     private Spring myMouseSpring;
 
     // simulation state
+    private ParticleStore myParticles;
     private List<Mass> myMasses;
     private List<Spring> mySprings;
     private List<Environment> myEnvironmentForces;
+    private ParallelSpringForces mySpringForces;
+    // rebuilt when needed after springs change
+    private SpringTopology myTopology;
+    // rebuilt when needed after masses move
+    private SpatialIndex mySpatialIndex;
+    // changes whenever masses or springs are added, removed or renumbered
+    private int myStructureVersion;
+    // draws springs and masses in batches
+    private ModelRenderer myRenderer;
+    private RenderSnapshot myPaintSnapshot;
 
-    // control environment forces
-    private Control myControl;
+    // fixed time stepping
+    private Integrator myIntegrator;
+    private ForceField myForces;
+    private double myTimeStep;
+    private int myMaxSubsteps;
+    private double myUnsimulatedTime;
+    // statistics
+    private long myStepCount;
+    private double myLastStepSeconds;
+    // copies positions out to a file every few steps, if set
+    private TrajectoryRecorder myRecorder;
 
     /**
-     * Create a game of the given size with the given display for its shapes.
+     * Create a simulation of the given size.
      * 
-     * @param canvas : The view for the Model.
+     * @param bounds : size of the area the masses live in
      */
-    public Model (Canvas canvas) {
-        myView = canvas;
+    public Model (Dimension bounds) {
+        myBounds = new Dimension(bounds);
+        myParticles = new ParticleStore();
+        mySpatialIndex = new SpatialIndex(myParticles);
+        myRenderer = new ModelRenderer();
+        myPaintSnapshot = new RenderSnapshot();
         myMasses = new ArrayList<Mass>();
         mySprings = new ArrayList<Spring>();
         myEnvironmentForces = new ArrayList<Environment>();
-        myControl = new Control(myView);
+        mySpringForces = new ParallelSpringForces(Runtime.getRuntime().availableProcessors());
+        myIntegrator = new SymplecticEulerIntegrator();
+        myForces = new ForceField() {
+            @Override
+            public void applyForces (ParticleStore particles) {
+                computeForces();
+            }
+
+            @Override
+            public List<Spring> getSprings () {
+                return mySprings;
+            }
+
+            @Override
+            public SpringTopology getTopology () {
+                return Model.this.getTopology();
+            }
+        };
+        myTimeStep = Integrator.DEFAULT_TIME_STEP;
+        myMaxSubsteps = DEFAULT_MAX_SUBSTEPS;
         myMouseDragging = false;
     }
 
+    /**
+     * Sets the scheme used to move masses each physics step.
+     * 
+     * @param integrator : scheme to use from now on
+     */
+    public void setIntegrator (Integrator integrator) {
+        myIntegrator = integrator;
+    }
+
+    /**
+     * @return the scheme used to move masses each physics step
+     */
+    public Integrator getIntegrator () {
+        return myIntegrator;
+    }
+
+    /**
+     * Sets the fixed length of each physics step.
+     * 
+     * @param timeStep : length of each step, in seconds
+     */
+    public void setTimeStep (double timeStep) {
+        if (timeStep <= 0) {
+            throw new IllegalArgumentException("time step must be positive: " + timeStep);
+        }
+        myTimeStep = timeStep;
+    }
+
+    /**
+     * @return the fixed length of each physics step, in seconds
+     */
+    public double getTimeStep () {
+        return myTimeStep;
+    }
+
+    /**
+     * Sets the most physics steps update may take for one frame. Time beyond
+     * that is dropped, so the simulation slows down rather than falling
+     * further and further behind.
+     * 
+     * @param maxSubsteps : most steps per frame, at least one
+     */
+    public void setMaxSubsteps (int maxSubsteps) {
+        myMaxSubsteps = Math.max(1, maxSubsteps);
+    }
+
+    /**
+     * Sets the number of threads used to apply spring forces each step.
+     * 
+     * @param threadCount : number of threads, at least one
+     */
+    public void setThreadCount (int threadCount) {
+        mySpringForces.shutdown();
+        mySpringForces = new ParallelSpringForces(threadCount);
+    }
+
     /**
      * sets the current bounds of the view to Environment so subclasses
      * can be aware of the new dimensions of the canvas
      */
     public void updateBounds () {
-        Environment.updateBounds(myView.getSize());
+        Environment.updateBounds(getBounds());
     }
 
     /**
-     * Draw all elements of the simulation.
+     * Sets the size of the area the masses live in, such as when the view
+     * is resized.
      * 
-     * @param pen : Graphics 2D object painting in Canvas class.
+     * @param bounds : new size of the area
      */
-    public void paint (Graphics2D pen) {
-        for (Spring s : mySprings) {
-            s.paint(pen);
+    public void setBounds (Dimension bounds) {
+        myBounds = new Dimension(bounds);
+        updateBounds();
+    }
+
+    /**
+     * @return size of the area the masses live in
+     */
+    public Dimension getBounds () {
+        return myBounds;
+    }
+
+    /**
+     * @return store holding the state of every mass in this simulation
+     */
+    public ParticleStore getParticles () {
+        return myParticles;
+    }
+
+    /**
+     * @return index for finding masses of this simulation by position
+     */
+    public SpatialIndex getSpatialIndex () {
+        return mySpatialIndex;
+    }
+
+    /**
+     * Returns the mass with the given handle in this simulation's store.
+     */
+    public Mass getMass (int index) {
+        return myMasses.get(index);
+    }
+
+    /**
+     * @return how springs connect the masses of this simulation
+     */
+    public SpringTopology getTopology () {
+        if (myTopology == null) {
+            myTopology = new SpringTopology(mySprings, myParticles.size());
         }
+        return myTopology;
+    }
 
+    /**
+     * Renumbers the masses of this simulation with a Reverse Cuthill-McKee
+     * ordering, so that masses connected by a spring sit close together in
+     * memory.
+     * 
+     * Springs keep their order: sorting the list of Spring objects scatters
+     * the reads of the objects themselves, which costs more than it saves.
+     * Mass objects follow their masses to their new handles, and each mass
+     * keeps the ID it was loaded with.
+     */
+    public void reorder () {
+        int[] order = getTopology().reverseCuthillMcKee();
+        myParticles.permute(order);
+        Mass[] masses = new Mass[myMasses.size()];
         for (Mass m : myMasses) {
-            m.paint(pen);
+            masses[m.getIndex()] = m;
         }
+        myMasses.clear();
+        for (int k = 0; k < order.length; k++) {
+            masses[order[k]].setIndex(k);
+            myMasses.add(masses[order[k]]);
+        }
+        myTopology = null;
+        mySpatialIndex.invalidate();
+        myStructureVersion++;
+    }
+
+    /**
+     * @return number that changes whenever masses or springs are added,
+     *         removed or renumbered
+     */
+    public int getStructureVersion () {
+        return myStructureVersion;
+    }
+
+    /**
+     * @return number of physics steps taken so far
+     */
+    public long getStepCount () {
+        return myStepCount;
+    }
 
-        myControl.paint(pen);
+    /**
+     * @return real time the last physics step took, in seconds
+     */
+    public double getLastStepSeconds () {
+        return myLastStepSeconds;
+    }
+
+    /**
+     * Records positions after each step with the given recorder, or stops
+     * recording if it is null. The recorder is not closed here.
+     */
+    public void setRecorder (TrajectoryRecorder recorder) {
+        myRecorder = recorder;
+    }
+
+    /**
+     * @return recorder positions are recorded with, or null
+     */
+    public TrajectoryRecorder getRecorder () {
+        return myRecorder;
+    }
+
+    /**
+     * @return number of springs and muscles in this simulation
+     */
+    public int getSpringCount () {
+        return mySprings.size();
+    }
+
+    /**
+     * Draw all elements of the simulation.
+     * 
+     * @param pen : Graphics 2D object painting in Canvas class.
+     */
+    public void paint (Graphics2D pen) {
+        capture(myPaintSnapshot);
+        myRenderer.paint(pen, myPaintSnapshot);
+    }
+
+    /**
+     * Copies what is needed to draw this simulation now into the given
+     * snapshot, so another thread can draw it while this one moves on.
+     * 
+     * @param snapshot : snapshot to fill
+     */
+    public void capture (RenderSnapshot snapshot) {
+        snapshot.capture(this, mySprings, myMouseDragging ? myMouseSpring : null);
     }
 
     /**
      * Update simulation for this moment, given the time since the last moment.
      * 
-     * @param elapsedTime : time since last update
+     * The physics always moves in steps of the fixed time step: elapsed time
+     * is accumulated and as many whole steps as fit are taken, carrying the
+     * remainder over to the next update.
+     * 
+     * @param elapsedTime : time since last update, in seconds
      */
     public void update (double elapsedTime) {
-        Dimension bounds = myView.getSize();
-        for (Spring s : mySprings) {
-            s.update(elapsedTime, bounds);
-        }
-        for (Environment f : myEnvironmentForces) {
-            f.applyForce(myMasses);
+        myUnsimulatedTime += elapsedTime;
+        int substeps = 0;
+        while (myUnsimulatedTime >= myTimeStep && substeps < myMaxSubsteps) {
+            step(myTimeStep);
+            myUnsimulatedTime -= myTimeStep;
+            substeps++;
         }
-        for (Mass m : myMasses) {
-            m.update(elapsedTime, bounds);
+        if (myUnsimulatedTime >= myTimeStep) {
+            myUnsimulatedTime = 0;
         }
+    }
 
-        if (myView.getMousePressed() && !myMouseDragging) {
-            createMouseSpring();
-            myMouseDragging = true;
+    /**
+     * Advance the physics of this simulation by one step of the given time,
+     * ignoring any user input.
+     * 
+     * @param elapsedTime : length of the step, in seconds
+     */
+    public void step (double elapsedTime) {
+        long start = System.nanoTime();
+        for (Spring s : mySprings) {
+            s.advance(elapsedTime);
         }
-        if (myMouseDragging) {
-            if (!myView.getMousePressed()) {
-                myMouseDragging = false;
-                mySprings.remove(myMouseSpring);
-            }
-            updateDrag(myView.getLastMousePosition());
+        myIntegrator.step(myForces, myParticles, elapsedTime);
+        myParticles.constrain(getBounds());
+        mySpatialIndex.invalidate();
+        myStepCount++;
+        if (myRecorder != null) {
+            myRecorder.record(this);
         }
+        myLastStepSeconds = (System.nanoTime() - start) / NANOS_PER_SECOND;
+    }
 
-        myControl.update(myEnvironmentForces);
+    // replace the force on each mass by the total of all forces on it now
+    private void computeForces () {
+        myParticles.clearForces();
+        mySpringForces.apply(mySprings, myParticles);
+        if (myMouseDragging) {
+            myMouseSpring.update(0, getBounds());
+        }
+        for (Environment f : myEnvironmentForces) {
+            f.applyForce(myParticles);
+        }
     }
 
     /**
-     * Add given mass to this simulation.
+     * Add given mass to this simulation. Its state is moved into this
+     * simulation's particle store.
      * 
      * @param mass : new mass to be added to Model.
      */
     public void add (Mass mass) {
+        mass.attach(myParticles);
         myMasses.add(mass);
+        myTopology = null;
+        mySpatialIndex.invalidate();
+        myStructureVersion++;
+    }
+
+    /**
+     * Adds every mass, spring and muscle of the given assembly to this
+     * simulation, copying the masses into the particle store in bulk.
+     * 
+     * @param assembly : masses and springs to be added to the Model.
+     */
+    public void add (Assembly assembly) {
+        int first = myParticles.addAll(assembly.getIds(), assembly.getX(), assembly.getY(),
+                                       assembly.getMass(), assembly.getFixed(),
+                                       assembly.getMassCount());
+        Mass[] masses = new Mass[assembly.getMassCount()];
+        boolean[] fixed = assembly.getFixed();
+        for (int k = 0; k < masses.length; k++) {
+            masses[k] = fixed[k] ? new FixedMass(myParticles, first + k) :
+                                   new Mass(myParticles, first + k);
+            myMasses.add(masses[k]);
+        }
+        int[] starts = assembly.getSpringStart();
+        int[] ends = assembly.getSpringEnd();
+        double[] lengths = assembly.getLength();
+        double[] ks = assembly.getK();
+        double[] damping = assembly.getDamping();
+        double[] amplitudes = assembly.getAmplitude();
+        byte[] flags = assembly.getSpringFlags();
+        for (int s = 0; s < assembly.getSpringCount(); s++) {
+            if ((flags[s] & Assembly.MUSCLE_FLAG) != 0) {
+                mySprings.add(new Muscle(masses[starts[s]], masses[ends[s]], lengths[s], ks[s],
+                                         amplitudes[s], damping[s]));
+            }
+            else {
+                mySprings.add(new Spring(masses[starts[s]], masses[ends[s]], lengths[s], ks[s],
+                                         damping[s]));
+            }
+        }
+        myTopology = null;
+        mySpatialIndex.invalidate();
+        myStructureVersion++;
+    }
+
+    /**
+     * Copies the complete state of this simulation into a checkpoint, which
+     * may then be written to disk on another thread. The mouse spring is not
+     * part of it.
+     */
+    public Checkpoint saveCheckpoint () {
+        Checkpoint c = new Checkpoint();
+        c.myWidth = myBounds.width;
+        c.myHeight = myBounds.height;
+        c.myTimeStep = myTimeStep;
+        c.myMaxSubsteps = myMaxSubsteps;
+        c.myUnsimulatedTime = myUnsimulatedTime;
+        c.myStepCount = myStepCount;
+        c.myIntegratorName = myIntegrator.getName();
+        if (myIntegrator instanceof ImplicitEulerIntegrator) {
+            c.myMaxIterations = ((ImplicitEulerIntegrator) myIntegrator).getMaxIterations();
+        }
+        c.myIntegratorState = myIntegrator.saveState(myParticles);
+        c.myEnvironment = Checkpoint.writeEnvironment(myEnvironmentForces);
+        int masses = myParticles.size();
+        c.myMassCount = masses;
+        c.myX = Arrays.copyOf(myParticles.getPositionX(), masses);
+        c.myY = Arrays.copyOf(myParticles.getPositionY(), masses);
+        c.myVelocityX = Arrays.copyOf(myParticles.getVelocityX(), masses);
+        c.myVelocityY = Arrays.copyOf(myParticles.getVelocityY(), masses);
+        c.myMass = new double[masses];
+        c.myFixed = new boolean[masses];
+        c.myIds = new int[masses];
+        for (int i = 0; i < masses; i++) {
+            c.myMass[i] = myParticles.getMass(i);
+            c.myFixed[i] = myParticles.isFixed(i);
+            c.myIds[i] = myParticles.getId(i);
+        }
+        int springs = mySprings.size();
+        c.mySpringCount = springs;
+        c.mySpringStart = new int[springs];
+        c.mySpringEnd = new int[springs];
+        c.myLength = new double[springs];
+        c.myK = new double[springs];
+        c.myDamping = new double[springs];
+        c.mySpringFlags = new byte[springs];
+        c.myAmplitude = new double[springs];
+        c.myInitialLength = new double[springs];
+        c.myPhase = new double[springs];
+        for (int s = 0; s < springs; s++) {
+            Spring spring = mySprings.get(s);
+            c.mySpringStart[s] = spring.getStartMass().getIndex();
+            c.mySpringEnd[s] = spring.getEndMass().getIndex();
+            c.myLength[s] = spring.getLength();
+            c.myK[s] = spring.getK();
+            c.myDamping[s] = spring.getDamping();
+            if (spring instanceof Muscle) {
+                Muscle muscle = (Muscle) spring;
+                c.mySpringFlags[s] = Assembly.MUSCLE_FLAG;
+                c.myAmplitude[s] = muscle.getAmplitude();
+                c.myInitialLength[s] = muscle.getInitialLength();
+                c.myPhase[s] = muscle.getPhase();
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Replaces everything in this simulation, including its environment
+     * forces and integrator, by the state kept in the given checkpoint.
+     */
+    public void restore (Checkpoint c) {
+        clear();
+        myBounds = new Dimension(c.myWidth, c.myHeight);
+        updateBounds();
+        myTimeStep = c.myTimeStep;
+        myMaxSubsteps = c.myMaxSubsteps;
+        myUnsimulatedTime = c.myUnsimulatedTime;
+        myStepCount = c.myStepCount;
+        myEnvironmentForces.clear();
+        myEnvironmentForces.addAll(c.readEnvironment());
+        int first = myParticles.addAll(c.myIds, c.myX, c.myY, c.myMass, c.myFixed,
+                                       c.myMassCount);
+        System.arraycopy(c.myVelocityX, 0, myParticles.getVelocityX(), first, c.myMassCount);
+        System.arraycopy(c.myVelocityY, 0, myParticles.getVelocityY(), first, c.myMassCount);
+        Mass[] masses = new Mass[c.myMassCount];
+        for (int i = 0; i < masses.length; i++) {
+            masses[i] = c.myFixed[i] ? new FixedMass(myParticles, first + i) :
+                                       new Mass(myParticles, first + i);
+            myMasses.add(masses[i]);
+        }
+        for (int s = 0; s < c.mySpringCount; s++) {
+            Mass start = masses[c.mySpringStart[s]];
+            Mass end = masses[c.mySpringEnd[s]];
+            if ((c.mySpringFlags[s] & Assembly.MUSCLE_FLAG) != 0) {
+                Muscle muscle = new Muscle(start, end, c.myInitialLength[s], c.myK[s],
+                                           c.myAmplitude[s], c.myDamping[s]);
+                muscle.setPhase(c.myPhase[s]);
+                muscle.setLength(c.myLength[s]);
+                mySprings.add(muscle);
+            }
+            else {
+                mySprings.add(new Spring(start, end, c.myLength[s], c.myK[s], c.myDamping[s]));
+            }
+        }
+        Integrator integrator = Integrator.forName(c.myIntegratorName);
+        if (integrator instanceof ImplicitEulerIntegrator) {
+            ((ImplicitEulerIntegrator) integrator).setMaxIterations(c.myMaxIterations);
+        }
+        integrator.restoreState(myParticles, c.myIntegratorState);
+        myIntegrator = integrator;
+        myTopology = null;
+        mySpatialIndex.invalidate();
+        myStructureVersion++;
     }
 
     /**
@@ -125,48 +531,91 @@ public class Model {
     }
 
     /**
-     * Add given spring to this simulation.
+     * Add given spring to this simulation. Both of its masses must already
+     * have been added.
      * 
      * @param spring : new spring to be added to the Model.
      */
     public void add (Spring spring) {
         mySprings.add(spring);
+        myTopology = null;
+        myStructureVersion++;
     }
 
     /**
      * Clear all masses and springs from Model.
      */
     public void clear () {
+        endDrag();
+        myParticles.clear();
         myMasses.clear();
         mySprings.clear();
+        myTopology = null;
+        mySpatialIndex.invalidate();
+        myStructureVersion++;
+    }
+
+    /**
+     * Toggles the environment force that responds to the given key.
+     * 
+     * @param key : code of the key pressed
+     * @return the force toggled, or null if no force responds to the key
+     */
+    public Environment toggleForce (int key) {
+        for (Environment f : myEnvironmentForces) {
+            Environment toggledForce = f.toggleForce(key);
+            if (toggledForce != null) { return toggledForce; }
+        }
+        return null;
+    }
+
+    /**
+     * Starts dragging the mass closest to the given point with a spring
+     * attached to the mouse. Does nothing if there are no masses.
+     */
+    public void startDrag (Point2D mouseLocation) {
+        if (myMouseDragging) { return; }
+        myMouseDragging = createMouseSpring(mouseLocation);
+    }
+
+    /**
+     * Moves the mouse end of the dragging spring to the given point.
+     */
+    public void drag (Point2D mouseLocation) {
+        if (!myMouseDragging) { return; }
+        updateDrag(mouseLocation);
+    }
+
+    /**
+     * Lets go of the mass being dragged, if any.
+     */
+    public void endDrag () {
+        myMouseDragging = false;
+        myMouseSpring = null;
     }
 
     // Four private methods for Mouse Dragging
-    private void createMouseSpring () {
-        Point mouseLocation = myView.getLastMousePosition();
+    private boolean createMouseSpring (Point2D mouseLocation) {
         Mass mass = findClosestMass(mouseLocation);
+        if (mass == null) { return false; }
         myMouseSpring = new Spring(mass,
-                                   new Mass(myView.getLastMousePosition(), DEFAULT_MASS),
+                                   new Mass(mouseLocation.getX(), mouseLocation.getY(),
+                                            DEFAULT_MASS),
                                    getDistanceFromMass(mass, mouseLocation), DEFAULT_KVAL);
-        mySprings.add(myMouseSpring);
+        return true;
     }
 
-    private double getDistanceFromMass (Mass mass, Point mouseLocation) {
+    private double getDistanceFromMass (Mass mass, Point2D mouseLocation) {
         return mouseLocation.distance(mass.getX(), mass.getY());
     }
 
-    private Mass findClosestMass (Point mouseLocation) {
-        Mass closestMass = myMasses.get(0);
-        for (Mass m : myMasses) {
-            if (getDistanceFromMass(m, mouseLocation) < 
-                    getDistanceFromMass(closestMass, mouseLocation)) {
-                closestMass = m;
-            }
-        }
-        return closestMass;
+    private Mass findClosestMass (Point2D mouseLocation) {
+        int closest = mySpatialIndex.findNearest(mouseLocation.getX(), mouseLocation.getY());
+        if (closest == SpatialIndex.NONE) { return null; }
+        return myMasses.get(closest);
     }
 
-    private void updateDrag (Point mouseLocation) {
+    private void updateDrag (Point2D mouseLocation) {
         myMouseSpring.getEndMass().setCenter(
                                              mouseLocation.getX(), mouseLocation.getY());
     }
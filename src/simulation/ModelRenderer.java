@@ -0,0 +1,192 @@
+package simulation;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import util.Viewport;
+
+
+/**
+ * Draws all the springs and masses of a model with as few Java2D calls and
+ * state changes as possible.
+ *
+ * Springs are sorted into compressed, neutral and stretched buckets using the
+ * stretch each spring recorded when its forces were last applied, so drawing
+ * does not measure any spring again. Each bucket is drawn as one path with a
+ * single color change. Masses are stamped from an image rasterized once per
+ * size. Everything is drawn from a RenderSnapshot, never from the live model.
+ *
+ * When drawn through a Viewport, only masses inside the visible region and
+ * springs whose bounding box meets it are drawn, both found through the
+ * snapshot's spatial index: springs are looked up from the masses they start
+ * at, within the longest spring's reach of the region. Zoomed far out,
+ * masses shrink to single pixels and springs too short to cover a pixel are
+ * skipped.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class ModelRenderer {
+    // color of each bucket, indexed by Spring.COMPRESSED, NEUTRAL and STRETCHED
+    private static final Color[] STRAIN_COLORS = { Color.BLUE, Color.BLACK, Color.RED };
+    private static final Color MASS_COLOR = Color.BLACK;
+    // masses drawn smaller than this many pixels across are drawn as single pixels
+    private static final int MIN_STAMP_SIZE = 3;
+    private static final Viewport NO_ZOOM = new Viewport();
+
+    // reused from frame to frame
+    private Path2D.Double[] myBuckets;
+    private BufferedImage myMassStamp;
+
+    /**
+     * Create a renderer.
+     */
+    public ModelRenderer () {
+        myBuckets = new Path2D.Double[STRAIN_COLORS.length];
+        for (int k = 0; k < myBuckets.length; k++) {
+            myBuckets[k] = new Path2D.Double();
+        }
+    }
+
+    /**
+     * Draws the springs of the given snapshot, then the mouse spring, then
+     * every mass on top, one pixel per unit.
+     *
+     * @param pen : graphics to draw on
+     * @param snapshot : state of the model to draw
+     */
+    public void paint (Graphics2D pen, RenderSnapshot snapshot) {
+        paint(pen, snapshot, NO_ZOOM, null);
+    }
+
+    /**
+     * Draws the part of the given snapshot visible through the given viewport.
+     *
+     * @param pen : graphics to draw on
+     * @param snapshot : state of the model to draw
+     * @param viewport : maps the model to the screen
+     * @param screen : size of the area drawn on, or null to draw everything
+     */
+    public void paint (Graphics2D pen, RenderSnapshot snapshot, Viewport viewport,
+                       Dimension screen) {
+        Rectangle2D visible = null;
+        if (screen != null) {
+            // masses just outside the screen still show their edge
+            double margin = Mass.DEFAULT_SIZE.width / 2.0;
+            Rectangle2D region = viewport.getVisibleRegion(screen);
+            visible = new Rectangle2D.Double(region.getX() - margin, region.getY() - margin,
+                                             region.getWidth() + 2 * margin,
+                                             region.getHeight() + 2 * margin);
+        }
+        paintSprings(pen, snapshot, viewport, visible);
+        if (snapshot.isDragging()) {
+            double[] line = snapshot.getDragLine();
+            pen.setColor(STRAIN_COLORS[snapshot.getDragBucket()]);
+            pen.drawLine((int) viewport.toScreenX(line[0]), (int) viewport.toScreenY(line[1]),
+                         (int) viewport.toScreenX(line[2]), (int) viewport.toScreenY(line[3]));
+        }
+        paintMasses(pen, snapshot, viewport, visible);
+    }
+
+    // draws the springs, one path per strain bucket
+    private void paintSprings (Graphics2D pen, RenderSnapshot snapshot, Viewport viewport,
+                               Rectangle2D visible) {
+        for (Path2D.Double bucket : myBuckets) {
+            bucket.reset();
+        }
+        // springs shorter than this in the model do not cover a pixel
+        double minLength = 1 / viewport.getScale();
+        boolean simplify = minLength > 1;
+        if (visible == null) {
+            for (int s = 0; s < snapshot.getSpringCount(); s++) {
+                addSpring(snapshot, s, null, simplify, minLength, viewport);
+            }
+        }
+        else {
+            // a spring in view starts no further outside it than any spring spans
+            double width = snapshot.getMaxSpringWidth();
+            double height = snapshot.getMaxSpringHeight();
+            int[] masses = snapshot.getSpatialIndex().findInside(
+                    new Rectangle2D.Double(visible.getX() - width, visible.getY() - height,
+                                           visible.getWidth() + 2 * width,
+                                           visible.getHeight() + 2 * height));
+            int[] offsets = snapshot.getStartOffsets();
+            int[] springs = snapshot.getSpringsByStart();
+            for (int mass : masses) {
+                for (int k = offsets[mass]; k < offsets[mass + 1]; k++) {
+                    addSpring(snapshot, springs[k], visible, simplify, minLength, viewport);
+                }
+            }
+        }
+        for (int k = 0; k < myBuckets.length; k++) {
+            pen.setColor(STRAIN_COLORS[k]);
+            pen.draw(myBuckets[k]);
+        }
+    }
+
+    // adds the given spring to the path of its bucket, unless it is out of
+    // view or too short to see
+    private void addSpring (RenderSnapshot snapshot, int s, Rectangle2D visible,
+                            boolean simplify, double minLength, Viewport viewport) {
+        double[] x = snapshot.getX();
+        double[] y = snapshot.getY();
+        double x1 = x[snapshot.getSpringStart()[s]];
+        double y1 = y[snapshot.getSpringStart()[s]];
+        double x2 = x[snapshot.getSpringEnd()[s]];
+        double y2 = y[snapshot.getSpringEnd()[s]];
+        if (visible != null &&
+            (Math.max(x1, x2) < visible.getMinX() || Math.min(x1, x2) > visible.getMaxX() ||
+             Math.max(y1, y2) < visible.getMinY() || Math.min(y1, y2) > visible.getMaxY())) {
+            return;
+        }
+        if (simplify && Math.abs(x1 - x2) < minLength && Math.abs(y1 - y2) < minLength) {
+            return;
+        }
+        Path2D.Double bucket = myBuckets[snapshot.getStrainBuckets()[s]];
+        bucket.moveTo(viewport.toScreenX(x1), viewport.toScreenY(y1));
+        bucket.lineTo(viewport.toScreenX(x2), viewport.toScreenY(y2));
+    }
+
+    // draws every visible mass by stamping the mass image, or as a pixel when tiny
+    private void paintMasses (Graphics2D pen, RenderSnapshot snapshot, Viewport viewport,
+                              Rectangle2D visible) {
+        double[] x = snapshot.getX();
+        double[] y = snapshot.getY();
+        int[] masses = null;
+        int count = snapshot.getMassCount();
+        if (visible != null) {
+            masses = snapshot.getSpatialIndex().findInside(visible);
+            count = masses.length;
+        }
+        int size = (int) Math.round(Mass.DEFAULT_SIZE.width * viewport.getScale());
+        if (size < MIN_STAMP_SIZE) {
+            pen.setColor(MASS_COLOR);
+            for (int k = 0; k < count; k++) {
+                int i = (masses == null) ? k : masses[k];
+                pen.fillRect((int) viewport.toScreenX(x[i]), (int) viewport.toScreenY(y[i]), 1, 1);
+            }
+            return;
+        }
+        BufferedImage stamp = getMassStamp(size);
+        int half = size / 2;
+        for (int k = 0; k < count; k++) {
+            int i = (masses == null) ? k : masses[k];
+            pen.drawImage(stamp, (int) (viewport.toScreenX(x[i]) - half),
+                          (int) (viewport.toScreenY(y[i]) - half), null);
+        }
+    }
+
+    // the same circle Mass.paint draws, drawn once for each size it is needed at
+    private BufferedImage getMassStamp (int size) {
+        if (myMassStamp == null || myMassStamp.getWidth() != size) {
+            myMassStamp = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D pen = myMassStamp.createGraphics();
+            pen.setColor(MASS_COLOR);
+            pen.fillOval(0, 0, size, size);
+            pen.dispose();
+        }
+        return myMassStamp;
+    }
+}
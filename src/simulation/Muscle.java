@@ -10,8 +10,8 @@ import java.awt.Dimension;
  */
 public class Muscle extends Spring {
 
-    private static final int FRAME_RATE_DENOM = 100;
-    private static final double RADIANS_PER_FRAME = Math.PI / FRAME_RATE_DENOM;
+    // one full cycle every eight seconds
+    private static final double RADIANS_PER_SECOND = Math.PI / 4;
     private double myAmplitude;
     private double myInitLength;
     private double myPhase;
@@ -26,7 +26,22 @@ public class Muscle extends Spring {
      * @param amplitude : describes changing rest length function
      */
     public Muscle (Mass start, Mass end, double initLength, double kVal, double amplitude) {
-        super(start, end, initLength, kVal);
+        this(start, end, initLength, kVal, amplitude, 0);
+    }
+
+    /**
+     * Constructor for a damped Muscle.
+     * 
+     * @param start : mass 1 connected by Muscle
+     * @param end : mass 2 connected by Muscle
+     * @param initLength : starting rest length of Muscle
+     * @param kVal : Stiffness
+     * @param amplitude : describes changing rest length function
+     * @param damping : force per unit of speed at which the masses approach or separate
+     */
+    public Muscle (Mass start, Mass end, double initLength, double kVal, double amplitude,
+                   double damping) {
+        super(start, end, initLength, kVal, damping);
         myAmplitude = amplitude;
         myInitLength = initLength;
         myPhase = 0;
@@ -41,13 +56,38 @@ public class Muscle extends Spring {
      */
     @Override
     public void update (double elapsedTime, Dimension bounds) {
-        updateRestLength();
+        advance(elapsedTime);
         super.update(elapsedTime, bounds);
     }
 
-    private void updateRestLength () {
+    double getAmplitude () {
+        return myAmplitude;
+    }
+
+    double getInitialLength () {
+        return myInitLength;
+    }
+
+    double getPhase () {
+        return myPhase;
+    }
+
+    /**
+     * Sets how far through its cycle this muscle is, in radians.
+     */
+    void setPhase (double phase) {
+        myPhase = phase;
+    }
+
+    /**
+     * Update the Muscle's RestLength for the given time.
+     * 
+     * @param elapsedTime : Time elapsed since last update
+     */
+    @Override
+    void advance (double elapsedTime) {
         setLength(myInitLength * (1 + myAmplitude * Math.sin(myPhase)));
-        myPhase += RADIANS_PER_FRAME;
+        myPhase += RADIANS_PER_SECOND * elapsedTime;
     }
 
 }
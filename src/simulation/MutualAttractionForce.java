@@ -0,0 +1,350 @@
+package simulation;
+
+import java.awt.event.KeyEvent;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Class that represents a force every mass exerts on every other mass,
+ * proportional to the product of their masses and to the inverse square of
+ * their distance, like gravitation. A negative magnitude makes the masses
+ * repel each other instead, like charges of the same sign.
+ *
+ * Forces are approximated with a Barnes-Hut quadtree: a group of masses that
+ * is small compared to its distance, as measured by the opening angle, acts
+ * as a single mass at its center of mass. Each step costs time proportional
+ * to n log n instead of n squared. An opening angle of zero gives the exact
+ * all pairs sum.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class MutualAttractionForce extends Environment {
+    // commonly used accuracy, within about one percent of the exact force
+    public static final double DEFAULT_OPENING_ANGLE = 0.5;
+    // distances closer than about the size of a mass are softened
+    public static final double DEFAULT_SOFTENING = ParticleStore.PARTICLE_SIZE.width;
+    // below this size, splitting the work costs more than it saves
+    public static final int MIN_MASSES_PER_TASK = 2048;
+    // coincident masses share a leaf instead of splitting forever
+    private static final int MAX_DEPTH = 48;
+    // marks a node whose bodies have been moved into its children
+    private static final int INTERNAL = -2;
+    private static final int EMPTY = -1;
+
+    private double myMagnitude;
+    private double myOpeningAngle;
+    private double mySoftening;
+    private ForkJoinPool myPool;
+    private int myThreadCount;
+
+    // quadtree, nodes are stored by index and reused from step to step
+    private int myNodeCount;
+    private int[] myChildren = new int[0];
+    private int[] myParent = new int[0];
+    private int[] myFirstBody = new int[0];
+    private double[] myNodeSize = new double[0];
+    private double[] myNodeMass = new double[0];
+    private double[] myNodeX = new double[0];
+    private double[] myNodeY = new double[0];
+    // bodies sharing a leaf are linked through this array
+    private int[] myNextBody = new int[0];
+
+    /**
+     * Constructor for the force all masses exert on each other
+     * @param magnitude scales the force between two unit masses one pixel apart,
+     *        negative to make masses repel
+     * @param openingAngle ratio of size to distance under which a group of
+     *        masses is treated as one, zero to sum every pair exactly
+     * @param softening distance added in quadrature to every distance so
+     *        nearby masses do not get infinite forces
+     */
+    public MutualAttractionForce (double magnitude, double openingAngle, double softening) {
+        if (openingAngle < 0) {
+            throw new IllegalArgumentException("opening angle must not be negative: " +
+                                               openingAngle);
+        }
+        myMagnitude = magnitude;
+        myOpeningAngle = openingAngle;
+        mySoftening = softening;
+        myThreadCount = Runtime.getRuntime().availableProcessors();
+        myName = "Mutual Attraction";
+    }
+
+    /**
+     * Constructor using the default opening angle and softening
+     * @param magnitude scales the force between two unit masses one pixel apart
+     */
+    public MutualAttractionForce (double magnitude) {
+        this(magnitude, DEFAULT_OPENING_ANGLE, DEFAULT_SOFTENING);
+    }
+
+    /**
+     * @return ratio of size to distance under which masses are grouped
+     */
+    public double getOpeningAngle () {
+        return myOpeningAngle;
+    }
+
+    /**
+     * Sets the number of threads used to evaluate this force each step.
+     *
+     * @param threadCount : number of threads, at least one
+     */
+    public void setThreadCount (int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("thread count must be positive: " + threadCount);
+        }
+        if (myPool != null) {
+            myPool.shutdown();
+            myPool = null;
+        }
+        myThreadCount = threadCount;
+    }
+
+    /**
+     * Builds the quadtree over the current positions, then applies the force
+     * of all other masses to each mass.
+     * Does not apply force if isForceOn is off
+     * @param particles store with the masses of the model
+     */
+    public void applyForce (ParticleStore particles) {
+        if (!isForceOn || particles.size() < 2) { return; }
+        buildTree(particles);
+        int tasks = Math.min(myThreadCount, particles.size() / MIN_MASSES_PER_TASK);
+        if (tasks <= 1) {
+            applyForce(particles, 0, particles.size(), new int[4 * MAX_DEPTH + 4]);
+            return;
+        }
+        if (myPool == null) {
+            myPool = new ForkJoinPool(myThreadCount);
+        }
+        myPool.invoke(new ForceTask(particles, 0, particles.size(),
+                                    particles.size() / tasks + 1));
+    }
+
+    @Override
+    protected int getKind () {
+        return MUTUAL_ATTRACTION;
+    }
+
+    @Override
+    protected double[] getSettings () {
+        return new double[] { myMagnitude, myOpeningAngle, mySoftening };
+    }
+
+    @Override
+    public final Environment toggleForce (final int key) {
+        if (!(key == KeyEvent.VK_A)) { return null; }
+        isForceOn = !isForceOn;
+        return this;
+    }
+
+    // adds the force on each mass in [start, end) into the store's accumulators
+    private void applyForce (ParticleStore particles, int start, int end, int[] stack) {
+        double[] x = particles.getPositionX();
+        double[] y = particles.getPositionY();
+        double[] fx = particles.getForceX();
+        double[] fy = particles.getForceY();
+        double angleSquared = myOpeningAngle * myOpeningAngle;
+        double softeningSquared = mySoftening * mySoftening;
+        for (int i = start; i < end; i++) {
+            if (particles.isFixed(i)) {
+                continue;
+            }
+            double sumX = 0;
+            double sumY = 0;
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                if (myFirstBody[node] != INTERNAL) {
+                    for (int j = myFirstBody[node]; j != EMPTY; j = myNextBody[j]) {
+                        if (j == i) {
+                            continue;
+                        }
+                        double dx = x[j] - x[i];
+                        double dy = y[j] - y[i];
+                        double scale = particles.getMass(j) /
+                                       cube(Math.sqrt(dx * dx + dy * dy + softeningSquared));
+                        sumX += dx * scale;
+                        sumY += dy * scale;
+                    }
+                    continue;
+                }
+                double dx = myNodeX[node] - x[i];
+                double dy = myNodeY[node] - y[i];
+                double distanceSquared = dx * dx + dy * dy;
+                double size = myNodeSize[node];
+                if (size * size < angleSquared * distanceSquared) {
+                    double scale = myNodeMass[node] /
+                                   cube(Math.sqrt(distanceSquared + softeningSquared));
+                    sumX += dx * scale;
+                    sumY += dy * scale;
+                }
+                else {
+                    for (int q = 0; q < 4; q++) {
+                        int child = myChildren[4 * node + q];
+                        if (child != EMPTY) {
+                            stack[top++] = child;
+                        }
+                    }
+                }
+            }
+            double scale = myMagnitude * particles.getMass(i);
+            fx[i] += sumX * scale;
+            fy[i] += sumY * scale;
+        }
+    }
+
+    // builds the quadtree and the center of mass of every node
+    private void buildTree (ParticleStore particles) {
+        int size = particles.size();
+        double[] x = particles.getPositionX();
+        double[] y = particles.getPositionY();
+        double left = Double.POSITIVE_INFINITY;
+        double top = Double.POSITIVE_INFINITY;
+        double right = Double.NEGATIVE_INFINITY;
+        double bottom = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            left = Math.min(left, x[i]);
+            top = Math.min(top, y[i]);
+            right = Math.max(right, x[i]);
+            bottom = Math.max(bottom, y[i]);
+        }
+        // root square slightly larger than the masses so none sits on its far edge
+        double side = Math.max(Math.max(right - left, bottom - top), 1) * (1 + 1e-9);
+        if (myNextBody.length < size) {
+            myNextBody = new int[size];
+        }
+        myNodeCount = 0;
+        newNode(EMPTY, side);
+        for (int i = 0; i < size; i++) {
+            insert(i, x, y, left, top, side);
+        }
+        // children are always created after their parents, so walk backwards
+        for (int node = 0; node < myNodeCount; node++) {
+            myNodeMass[node] = 0;
+            myNodeX[node] = 0;
+            myNodeY[node] = 0;
+        }
+        for (int node = myNodeCount - 1; node >= 0; node--) {
+            for (int j = myFirstBody[node]; j >= 0; j = myNextBody[j]) {
+                double mass = particles.getMass(j);
+                myNodeMass[node] += mass;
+                myNodeX[node] += mass * x[j];
+                myNodeY[node] += mass * y[j];
+            }
+            double mass = myNodeMass[node];
+            if (myParent[node] != EMPTY) {
+                myNodeMass[myParent[node]] += mass;
+                myNodeX[myParent[node]] += myNodeX[node];
+                myNodeY[myParent[node]] += myNodeY[node];
+            }
+            if (mass != 0) {
+                myNodeX[node] /= mass;
+                myNodeY[node] /= mass;
+            }
+        }
+    }
+
+    // adds one mass to the quadtree, splitting leaves as needed
+    private void insert (int body, double[] x, double[] y,
+                         double left, double top, double side) {
+        int node = 0;
+        int depth = 0;
+        while (true) {
+            if (myFirstBody[node] != INTERNAL) {
+                if (myFirstBody[node] == EMPTY || depth >= MAX_DEPTH) {
+                    myNextBody[body] = myFirstBody[node];
+                    myFirstBody[node] = body;
+                    return;
+                }
+                // move the bodies already here into a child
+                int moved = myFirstBody[node];
+                myFirstBody[node] = INTERNAL;
+                int quadrant = getQuadrant(x[moved], y[moved], left, top, side);
+                int child = newNode(node, side / 2);
+                myChildren[4 * node + quadrant] = child;
+                myFirstBody[child] = moved;
+            }
+            int quadrant = getQuadrant(x[body], y[body], left, top, side);
+            side /= 2;
+            left += (quadrant & 1) * side;
+            top += (quadrant >> 1) * side;
+            depth++;
+            int child = myChildren[4 * node + quadrant];
+            if (child == EMPTY) {
+                child = newNode(node, side);
+                myChildren[4 * node + quadrant] = child;
+            }
+            node = child;
+        }
+    }
+
+    // index of the quarter of the given square containing the given point
+    private static int getQuadrant (double x, double y, double left, double top, double side) {
+        double half = side / 2;
+        int column = (x >= left + half) ? 1 : 0;
+        int row = (y >= top + half) ? 1 : 0;
+        return row * 2 + column;
+    }
+
+    private int newNode (int parent, double side) {
+        if (myNodeCount == myParent.length) {
+            int capacity = Math.max(64, myParent.length * 2);
+            myChildren = Arrays.copyOf(myChildren, 4 * capacity);
+            myParent = Arrays.copyOf(myParent, capacity);
+            myFirstBody = Arrays.copyOf(myFirstBody, capacity);
+            myNodeSize = Arrays.copyOf(myNodeSize, capacity);
+            myNodeMass = Arrays.copyOf(myNodeMass, capacity);
+            myNodeX = Arrays.copyOf(myNodeX, capacity);
+            myNodeY = Arrays.copyOf(myNodeY, capacity);
+        }
+        int node = myNodeCount++;
+        for (int q = 0; q < 4; q++) {
+            myChildren[4 * node + q] = EMPTY;
+        }
+        myParent[node] = parent;
+        myFirstBody[node] = EMPTY;
+        myNodeSize[node] = side;
+        return node;
+    }
+
+    private static double cube (double value) {
+        return value * value * value;
+    }
+
+    /**
+     * Applies the force to a range of masses, splitting it in half until it
+     * is small enough. Each mass only writes its own accumulator, so ranges
+     * never interfere.
+     */
+    private class ForceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private ParticleStore myParticles;
+        private int myStart;
+        private int myEnd;
+        private int myGrain;
+
+        public ForceTask (ParticleStore particles, int start, int end, int grain) {
+            myParticles = particles;
+            myStart = start;
+            myEnd = end;
+            myGrain = grain;
+        }
+
+        @Override
+        protected void compute () {
+            if (myEnd - myStart <= myGrain) {
+                applyForce(myParticles, myStart, myEnd, new int[4 * MAX_DEPTH + 4]);
+                return;
+            }
+            int middle = (myStart + myEnd) >>> 1;
+            invokeAll(new ForceTask(myParticles, myStart, middle, myGrain),
+                      new ForceTask(myParticles, middle, myEnd, myGrain));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Applies the forces of all springs of a simulation using several threads.
+ *
+ * Springs are split into contiguous chunks, one per worker. Each worker
+ * accumulates its springs' forces into a force buffer of its own, so no two
+ * threads ever write to the same location, and the buffers are then summed
+ * into the particle store's force accumulators by a parallel reduction over
+ * ranges of masses. The result matches single threaded stepping up to the
+ * order in which the forces on each mass are added.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class ParallelSpringForces {
+    // below these sizes, splitting the work costs more than it saves
+    public static final int MIN_SPRINGS_PER_TASK = 4096;
+    public static final int MIN_MASSES_PER_TASK = 8192;
+
+    private ForkJoinPool myPool;
+    private int myThreadCount;
+    // one buffer per worker
+    private double[][] myForceX = new double[0][];
+    private double[][] myForceY = new double[0][];
+
+    /**
+     * Create a spring phase that uses up to the given number of threads.
+     *
+     * @param threadCount : number of threads, at least one
+     */
+    public ParallelSpringForces (int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("thread count must be positive: " + threadCount);
+        }
+        myThreadCount = threadCount;
+        if (myThreadCount > 1) {
+            myPool = new ForkJoinPool(myThreadCount);
+        }
+    }
+
+    /**
+     * @return number of threads used to apply spring forces
+     */
+    public int getThreadCount () {
+        return myThreadCount;
+    }
+
+    /**
+     * Add the forces every given spring applies into the force accumulators
+     * of the given store, which all their masses must live in.
+     *
+     * @param springs : springs to apply
+     * @param particles : store holding every mass attached to the springs
+     */
+    public void apply (List<Spring> springs, ParticleStore particles) {
+        int tasks = Math.min(myThreadCount,
+                             (springs.size() + MIN_SPRINGS_PER_TASK - 1) / MIN_SPRINGS_PER_TASK);
+        if (tasks <= 1) {
+            double[] forceX = particles.getForceX();
+            double[] forceY = particles.getForceY();
+            for (Spring s : springs) {
+                s.applyForce(particles, forceX, forceY);
+            }
+            return;
+        }
+        ensureBuffers(tasks, particles.size());
+        SpringTask[] workers = new SpringTask[tasks];
+        for (int t = 0; t < tasks; t++) {
+            workers[t] = new SpringTask(springs, particles, t,
+                                        springs.size() * t / tasks,
+                                        springs.size() * (t + 1) / tasks);
+        }
+        for (SpringTask w : workers) {
+            myPool.execute(w);
+        }
+        for (SpringTask w : workers) {
+            w.join();
+        }
+        myPool.invoke(new ReduceTask(particles, tasks, 0, particles.size()));
+    }
+
+    /**
+     * Stop the worker threads. This phase can no longer be used afterwards.
+     */
+    public void shutdown () {
+        if (myPool != null) {
+            myPool.shutdown();
+        }
+    }
+
+    private void ensureBuffers (int tasks, int masses) {
+        if (myForceX.length < tasks) {
+            myForceX = Arrays.copyOf(myForceX, tasks);
+            myForceY = Arrays.copyOf(myForceY, tasks);
+        }
+        for (int t = 0; t < tasks; t++) {
+            if (myForceX[t] == null || myForceX[t].length < masses) {
+                myForceX[t] = new double[masses];
+                myForceY[t] = new double[masses];
+            }
+        }
+    }
+
+    /**
+     * Updates one contiguous chunk of springs into one worker's buffer.
+     */
+    private class SpringTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private List<Spring> mySprings;
+        private ParticleStore myParticles;
+        private int myBuffer;
+        private int myFirst;
+        private int myLast;
+
+        public SpringTask (List<Spring> springs, ParticleStore particles,
+                           int buffer, int first, int last) {
+            mySprings = springs;
+            myParticles = particles;
+            myBuffer = buffer;
+            myFirst = first;
+            myLast = last;
+        }
+
+        @Override
+        protected void compute () {
+            double[] forceX = myForceX[myBuffer];
+            double[] forceY = myForceY[myBuffer];
+            Arrays.fill(forceX, 0, myParticles.size(), 0);
+            Arrays.fill(forceY, 0, myParticles.size(), 0);
+            for (int k = myFirst; k < myLast; k++) {
+                mySprings.get(k).applyForce(myParticles, forceX, forceY);
+            }
+        }
+    }
+
+    /**
+     * Sums every worker's buffer into the store for a range of masses,
+     * splitting the range in half until it is small enough.
+     */
+    private class ReduceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private ParticleStore myParticles;
+        private int myBuffers;
+        private int myFirst;
+        private int myLast;
+
+        public ReduceTask (ParticleStore particles, int buffers, int first, int last) {
+            myParticles = particles;
+            myBuffers = buffers;
+            myFirst = first;
+            myLast = last;
+        }
+
+        @Override
+        protected void compute () {
+            if (myLast - myFirst > MIN_MASSES_PER_TASK) {
+                int middle = (myFirst + myLast) >>> 1;
+                invokeAll(new ReduceTask(myParticles, myBuffers, myFirst, middle),
+                          new ReduceTask(myParticles, myBuffers, middle, myLast));
+                return;
+            }
+            double[] forceX = myParticles.getForceX();
+            double[] forceY = myParticles.getForceY();
+            for (int t = 0; t < myBuffers; t++) {
+                double[] bufferX = myForceX[t];
+                double[] bufferY = myForceY[t];
+                for (int i = myFirst; i < myLast; i++) {
+                    forceX[i] += bufferX[i];
+                    forceY[i] += bufferY[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package simulation;
+
+import java.awt.Dimension;
+import java.util.Arrays;
+import util.Vector;
+
+
+/**
+ * Holds the state of every mass in the simulation as parallel primitive arrays
+ * (structure of arrays) rather than one object per mass. Each mass is identified
+ * by an int handle that indexes into these arrays.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class ParticleStore {
+    // size used to keep masses within the bounds of the view
+    public static final Dimension PARTICLE_SIZE = new Dimension(16, 16);
+
+    // ID of masses that were not loaded from a file
+    public static final int NO_ID = -1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double HALF_WIDTH = PARTICLE_SIZE.width / 2;
+    private static final double HALF_HEIGHT = PARTICLE_SIZE.height / 2;
+
+    private int mySize;
+    private int myVersion;
+    // positions
+    private double[] myX;
+    private double[] myY;
+    // velocities
+    private double[] myVelocityX;
+    private double[] myVelocityY;
+    // force accumulators
+    private double[] myForceX;
+    private double[] myForceY;
+    // mass properties
+    private double[] myMass;
+    private double[] myInverseMass;
+    private boolean[] myFixed;
+    // ID of each mass in the file it was loaded from
+    private int[] myIds;
+
+    /**
+     * Create an empty store.
+     */
+    public ParticleStore () {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty store with room for the given number of masses.
+     *
+     * @param capacity : initial number of masses the store can hold
+     */
+    public ParticleStore (int capacity) {
+        int length = Math.max(1, capacity);
+        myX = new double[length];
+        myY = new double[length];
+        myVelocityX = new double[length];
+        myVelocityY = new double[length];
+        myForceX = new double[length];
+        myForceY = new double[length];
+        myMass = new double[length];
+        myInverseMass = new double[length];
+        myFixed = new boolean[length];
+        myIds = new int[length];
+    }
+
+    /**
+     * Adds a mass at rest to this store.
+     *
+     * @param x : x coordinate of the mass
+     * @param y : y coordinate of the mass
+     * @param mass : mass of the mass
+     * @param fixed : true if the mass should never move
+     * @return handle of the new mass
+     */
+    public int add (double x, double y, double mass, boolean fixed) {
+        ensureCapacity(mySize + 1);
+        int index = mySize++;
+        myVersion++;
+        myX[index] = x;
+        myY[index] = y;
+        myVelocityX[index] = 0;
+        myVelocityY[index] = 0;
+        myForceX[index] = 0;
+        myForceY[index] = 0;
+        myMass[index] = mass;
+        myInverseMass[index] = (fixed || mass == 0) ? 0 : 1 / mass;
+        myFixed[index] = fixed;
+        myIds[index] = NO_ID;
+        return index;
+    }
+
+    /**
+     * Adds the given number of masses at rest to this store in one go.
+     *
+     * @param ids : ID of each mass in the file it was loaded from
+     * @param mass : mass of each mass, ignored if the mass is fixed
+     * @param fixed : true for each mass that should never move
+     * @return handle of the first new mass; the rest follow in order
+     */
+    public int addAll (int[] ids, double[] x, double[] y, double[] mass, boolean[] fixed,
+                       int count) {
+        ensureCapacity(mySize + count);
+        int first = mySize;
+        System.arraycopy(ids, 0, myIds, first, count);
+        System.arraycopy(x, 0, myX, first, count);
+        System.arraycopy(y, 0, myY, first, count);
+        System.arraycopy(mass, 0, myMass, first, count);
+        System.arraycopy(fixed, 0, myFixed, first, count);
+        Arrays.fill(myVelocityX, first, first + count, 0);
+        Arrays.fill(myVelocityY, first, first + count, 0);
+        Arrays.fill(myForceX, first, first + count, 0);
+        Arrays.fill(myForceY, first, first + count, 0);
+        for (int k = first; k < first + count; k++) {
+            myInverseMass[k] = (myFixed[k] || myMass[k] == 0) ? 0 : 1 / myMass[k];
+        }
+        mySize += count;
+        myVersion++;
+        return first;
+    }
+
+    /**
+     * Copies the mass at the given handle of another store into this one.
+     *
+     * @return handle of the copy in this store
+     */
+    public int add (ParticleStore other, int index) {
+        int copy = add(other.myX[index], other.myY[index], other.myMass[index],
+                       other.myFixed[index]);
+        myVelocityX[copy] = other.myVelocityX[index];
+        myVelocityY[copy] = other.myVelocityY[index];
+        myForceX[copy] = other.myForceX[index];
+        myForceY[copy] = other.myForceY[index];
+        myIds[copy] = other.myIds[index];
+        return copy;
+    }
+
+    /**
+     * Removes all masses from this store.
+     */
+    public void clear () {
+        mySize = 0;
+        myVersion++;
+    }
+
+    /**
+     * @return number of masses in this store
+     */
+    public int size () {
+        return mySize;
+    }
+
+    /**
+     * Returns ID of given mass in the file it was loaded from, or NO_ID.
+     */
+    public int getId (int index) {
+        return myIds[index];
+    }
+
+    /**
+     * Sets ID of given mass in the file it was loaded from.
+     */
+    public void setId (int index, int id) {
+        myIds[index] = id;
+    }
+
+    /**
+     * Renumbers the masses in this store.
+     *
+     * @param order : order[k] is the current handle of the mass that should
+     *        have handle k afterwards; must contain every handle exactly once
+     */
+    public void permute (int[] order) {
+        myX = permute(myX, order);
+        myY = permute(myY, order);
+        myVelocityX = permute(myVelocityX, order);
+        myVelocityY = permute(myVelocityY, order);
+        myForceX = permute(myForceX, order);
+        myForceY = permute(myForceY, order);
+        myMass = permute(myMass, order);
+        myInverseMass = permute(myInverseMass, order);
+        boolean[] fixed = new boolean[myFixed.length];
+        int[] ids = new int[myIds.length];
+        for (int k = 0; k < mySize; k++) {
+            fixed[k] = myFixed[order[k]];
+            ids[k] = myIds[order[k]];
+        }
+        myFixed = fixed;
+        myIds = ids;
+        myVersion++;
+    }
+
+    /**
+     * Returns x coordinate of given mass.
+     */
+    public double getX (int index) {
+        return myX[index];
+    }
+
+    /**
+     * Returns y coordinate of given mass.
+     */
+    public double getY (int index) {
+        return myY[index];
+    }
+
+    /**
+     * Moves given mass to the given location.
+     */
+    public void setCenter (int index, double x, double y) {
+        myX[index] = x;
+        myY[index] = y;
+    }
+
+    /**
+     * Returns mass of given mass.
+     */
+    public double getMass (int index) {
+        return myMass[index];
+    }
+
+    /**
+     * Returns inverse of the mass of given mass, zero if it never moves.
+     */
+    public double getInverseMass (int index) {
+        return myInverseMass[index];
+    }
+
+    /**
+     * Returns true if given mass never moves.
+     */
+    public boolean isFixed (int index) {
+        return myFixed[index];
+    }
+
+    /**
+     * Returns x component of the velocity of given mass.
+     */
+    public double getVelocityX (int index) {
+        return myVelocityX[index];
+    }
+
+    /**
+     * Returns y component of the velocity of given mass.
+     */
+    public double getVelocityY (int index) {
+        return myVelocityY[index];
+    }
+
+    /**
+     * Returns a copy of the velocity of given mass.
+     */
+    public Vector getVelocity (int index) {
+        return toVector(myVelocityX[index], myVelocityY[index]);
+    }
+
+    /**
+     * Returns a copy of the force accumulated on given mass this step.
+     */
+    public Vector getForce (int index) {
+        return toVector(myForceX[index], myForceY[index]);
+    }
+
+    /**
+     * Use the given force to change given mass's acceleration, which is the
+     * force divided by its mass. Fixed masses ignore all forces.
+     */
+    public void applyForce (int index, Vector force) {
+        applyForce(index, force.getXChange(), force.getYChange());
+    }
+
+    /**
+     * Adds the given change in x and y to the force on given mass.
+     * Fixed masses ignore all forces.
+     */
+    public void applyForce (int index, double dx, double dy) {
+        if (myFixed[index]) { return; }
+        myForceX[index] += dx;
+        myForceY[index] += dy;
+    }
+
+    /**
+     * Sets the force on every mass back to zero.
+     */
+    public void clearForces () {
+        Arrays.fill(myForceX, 0, mySize, 0);
+        Arrays.fill(myForceY, 0, mySize, 0);
+    }
+
+    /**
+     * Returns a number that changes whenever masses are added, removed or
+     * renumbered, so that anything kept per handle can tell it is stale.
+     */
+    public int getVersion () {
+        return myVersion;
+    }
+
+    // Arrays backing this store, for the loops that run over every mass.
+    // Only the first size() entries are in use, and the arrays are replaced
+    // when masses are added, so they must not be kept between steps.
+
+    double[] getPositionX () {
+        return myX;
+    }
+
+    double[] getPositionY () {
+        return myY;
+    }
+
+    double[] getVelocityX () {
+        return myVelocityX;
+    }
+
+    double[] getVelocityY () {
+        return myVelocityY;
+    }
+
+    // forces added here directly on fixed masses are ignored by the
+    // integrators, since fixed masses have no inverse mass
+    double[] getForceX () {
+        return myForceX;
+    }
+
+    double[] getForceY () {
+        return myForceY;
+    }
+
+    double[] getInverseMass () {
+        return myInverseMass;
+    }
+
+    int[] getIds () {
+        return myIds;
+    }
+
+    /**
+     * Keeps every mass within the given bounds, bouncing it off any wall it
+     * reached while moving towards it.
+     *
+     * @param bounds : size of the area the masses live in
+     */
+    public void constrain (Dimension bounds) {
+        for (int i = 0; i < mySize; i++) {
+            constrain(i, bounds);
+        }
+    }
+
+    /**
+     * checks if mass tries to move out of the screen and keeps it
+     * within boundaries, reversing its velocity into the wall; a top or
+     * bottom wall takes precedence over the sides
+     */
+    private void constrain (int index, Dimension bounds) {
+        boolean hitX = false;
+        boolean hitY = false;
+        if (myY[index] - HALF_HEIGHT <= 0) {
+            myY[index] = HALF_HEIGHT;
+            hitY = myVelocityY[index] < 0;
+        }
+        if (myX[index] + HALF_WIDTH >= bounds.getWidth()) {
+            myX[index] = bounds.getWidth() - HALF_WIDTH;
+            hitX = myVelocityX[index] > 0;
+        }
+        if (myY[index] + HALF_HEIGHT >= bounds.getHeight()) {
+            myY[index] = bounds.getHeight() - HALF_HEIGHT;
+            hitY = myVelocityY[index] > 0;
+        }
+        if (myX[index] - HALF_WIDTH <= 0) {
+            myX[index] = HALF_WIDTH;
+            hitX = myVelocityX[index] < 0;
+        }
+        if (hitY) {
+            myVelocityY[index] = -myVelocityY[index];
+        }
+        else if (hitX) {
+            myVelocityX[index] = -myVelocityX[index];
+        }
+    }
+
+    private void ensureCapacity (int capacity) {
+        if (capacity <= myX.length) { return; }
+        int length = Math.max(capacity, myX.length * 2);
+        myX = Arrays.copyOf(myX, length);
+        myY = Arrays.copyOf(myY, length);
+        myVelocityX = Arrays.copyOf(myVelocityX, length);
+        myVelocityY = Arrays.copyOf(myVelocityY, length);
+        myForceX = Arrays.copyOf(myForceX, length);
+        myForceY = Arrays.copyOf(myForceY, length);
+        myMass = Arrays.copyOf(myMass, length);
+        myInverseMass = Arrays.copyOf(myInverseMass, length);
+        myFixed = Arrays.copyOf(myFixed, length);
+        myIds = Arrays.copyOf(myIds, length);
+    }
+
+    private double[] permute (double[] values, int[] order) {
+        double[] result = new double[values.length];
+        for (int k = 0; k < mySize; k++) {
+            result[k] = values[order[k]];
+        }
+        return result;
+    }
+
+    private static Vector toVector (double dx, double dy) {
+        return new Vector(Vector.angleBetween(dx, dy), Vector.distanceBetween(dx, dy));
+    }
+}
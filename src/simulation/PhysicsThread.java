@@ -0,0 +1,105 @@
+package simulation;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import util.TripleBuffer;
+
+
+/**
+ * Runs a model on a thread of its own, at the rate of its physics time step,
+ * independently of how often it is drawn.
+ *
+ * Other threads never touch the model. They post Commands, which are carried
+ * out between steps, and they draw the latest RenderSnapshot, which is
+ * published after each round of steps through a lock free triple buffer.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class PhysicsThread extends Thread {
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private Model myModel;
+    private Queue<Command> myCommands;
+    private TripleBuffer<RenderSnapshot> mySnapshots;
+    private volatile boolean isRunning;
+    private volatile boolean isPaused;
+
+    /**
+     * Create a thread that will run the given model once started. The model
+     * must not be used directly by any other thread after that.
+     */
+    public PhysicsThread (Model model) {
+        super("Springies physics");
+        setDaemon(true);
+        myModel = model;
+        myCommands = new ConcurrentLinkedQueue<Command>();
+        mySnapshots = new TripleBuffer<RenderSnapshot>(new RenderSnapshot(),
+                                                       new RenderSnapshot(),
+                                                       new RenderSnapshot());
+        isRunning = true;
+    }
+
+    /**
+     * Queues the given command to be carried out on the model before its
+     * next step. May be called from any thread.
+     */
+    public void post (Command command) {
+        myCommands.add(command);
+    }
+
+    /**
+     * Returns the most recent snapshot of the model. It is not changed until
+     * the next call, which must come from the same thread.
+     */
+    public RenderSnapshot getLatestSnapshot () {
+        return mySnapshots.getFront();
+    }
+
+    /**
+     * Stops or restarts stepping the model. While paused, commands are still
+     * carried out but no time passes in the model and no snapshots are taken.
+     */
+    public void setPaused (boolean paused) {
+        isPaused = paused;
+    }
+
+    /**
+     * Stops running the model after the current step.
+     */
+    public void shutdown () {
+        isRunning = false;
+        LockSupport.unpark(this);
+    }
+
+    @Override
+    public void run () {
+        long lastStepTime = System.nanoTime();
+        while (isRunning) {
+            Command command = myCommands.poll();
+            while (command != null) {
+                try {
+                    command.execute(myModel);
+                }
+                catch (RuntimeException e) {
+                    // a badly formatted file or failed command should not stop the model
+                    e.printStackTrace();
+                }
+                command = myCommands.poll();
+            }
+            long now = System.nanoTime();
+            if (!isPaused) {
+                myModel.update((now - lastStepTime) / NANOS_PER_SECOND);
+                myModel.capture(mySnapshots.getBack());
+                mySnapshots.publish();
+            }
+            lastStepTime = now;
+            // wait until the next step is due
+            long wait = (long) (myModel.getTimeStep() * NANOS_PER_SECOND) -
+                        (System.nanoTime() - now);
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+}
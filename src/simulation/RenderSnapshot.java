@@ -0,0 +1,279 @@
+package simulation;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Everything needed to draw a model at one moment: mass positions, which
+ * masses each spring joins and how strained it is, and the mouse spring.
+ *
+ * A snapshot is filled by the thread running the physics and then only read
+ * by the thread drawing it, so drawing never looks at the live simulation.
+ * Snapshots are reused: which masses springs join only changes when the model
+ * is loaded, cleared or reordered, so it is copied again only then.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class RenderSnapshot {
+    private int myMassCount;
+    private double[] myX = new double[0];
+    private double[] myY = new double[0];
+    private int mySpringCount;
+    private int[] mySpringStart = new int[0];
+    private int[] mySpringEnd = new int[0];
+    private byte[] myStrainBuckets = new byte[0];
+    // widest and tallest any spring spans, so springs in view can be found
+    // from the masses near the view
+    private double myMaxSpringWidth;
+    private double myMaxSpringHeight;
+    // springs sorted by start mass: those starting at mass i are entries
+    // myStartOffsets[i] up to myStartOffsets[i + 1] of mySpringsByStart,
+    // rebuilt when first asked after the springs change
+    private int[] myStartOffsets = new int[1];
+    private int[] mySpringsByStart = new int[0];
+    private boolean isSpringIndexValid;
+    // structure of the model the spring ends were copied from
+    private Model myModel;
+    private int myStructureVersion = -1;
+    // mouse spring, if the user is dragging a mass
+    private boolean isDragging;
+    private double[] myDragLine = new double[4];
+    private int myDragBucket;
+    // statistics for display
+    private long myStepCount;
+    private double myStepSeconds;
+    // finds the masses in view, rebuilt when first asked after a capture
+    private SpatialIndex mySpatialIndex = new SpatialIndex(this);
+
+    /**
+     * Copies the current state of the given model into this snapshot.
+     * Must be called on the thread that runs the model.
+     */
+    void capture (Model model, List<Spring> springs, Spring mouseSpring) {
+        ParticleStore particles = model.getParticles();
+        myMassCount = particles.size();
+        myX = ensureCapacity(myX, myMassCount);
+        myY = ensureCapacity(myY, myMassCount);
+        System.arraycopy(particles.getPositionX(), 0, myX, 0, myMassCount);
+        System.arraycopy(particles.getPositionY(), 0, myY, 0, myMassCount);
+        mySpringCount = springs.size();
+        if (model != myModel || model.getStructureVersion() != myStructureVersion) {
+            if (mySpringStart.length < mySpringCount) {
+                mySpringStart = new int[mySpringCount];
+                mySpringEnd = new int[mySpringCount];
+                myStrainBuckets = new byte[mySpringCount];
+            }
+            for (int s = 0; s < mySpringCount; s++) {
+                mySpringStart[s] = springs.get(s).getStartMass().getIndex();
+                mySpringEnd[s] = springs.get(s).getEndMass().getIndex();
+            }
+            myModel = model;
+            myStructureVersion = model.getStructureVersion();
+            isSpringIndexValid = false;
+        }
+        for (int s = 0; s < mySpringCount; s++) {
+            myStrainBuckets[s] = (byte) Spring.getStrainBucket(springs.get(s).getStretch());
+        }
+        measureSprings();
+        isDragging = (mouseSpring != null);
+        if (isDragging) {
+            Mass start = mouseSpring.getStartMass();
+            Mass end = mouseSpring.getEndMass();
+            myDragLine[0] = start.getX();
+            myDragLine[1] = start.getY();
+            myDragLine[2] = end.getX();
+            myDragLine[3] = end.getY();
+            myDragBucket = Spring.getStrainBucket(mouseSpring.getStretch());
+        }
+        myStepCount = model.getStepCount();
+        myStepSeconds = model.getLastStepSeconds();
+        mySpatialIndex.invalidate();
+    }
+
+    /**
+     * Copies a recorded frame into this snapshot, with the given springs
+     * joining its masses and judged against the given rest lengths.
+     */
+    void capture (TrajectoryFrame frame, int springCount, int[] springStart, int[] springEnd,
+                  double[] restLength) {
+        myMassCount = frame.getMassCount();
+        myX = ensureCapacity(myX, myMassCount);
+        myY = ensureCapacity(myY, myMassCount);
+        for (int k = 0; k < myMassCount; k++) {
+            myX[k] = frame.getX(k);
+            myY[k] = frame.getY(k);
+        }
+        if (springCount != mySpringCount || myModel != null ||
+            !isSame(springStart, mySpringStart, springCount) ||
+            !isSame(springEnd, mySpringEnd, springCount)) {
+            mySpringCount = springCount;
+            if (mySpringStart.length < mySpringCount) {
+                mySpringStart = new int[mySpringCount];
+                mySpringEnd = new int[mySpringCount];
+                myStrainBuckets = new byte[mySpringCount];
+            }
+            System.arraycopy(springStart, 0, mySpringStart, 0, mySpringCount);
+            System.arraycopy(springEnd, 0, mySpringEnd, 0, mySpringCount);
+            isSpringIndexValid = false;
+        }
+        for (int s = 0; s < mySpringCount; s++) {
+            double dx = myX[mySpringEnd[s]] - myX[mySpringStart[s]];
+            double dy = myY[mySpringEnd[s]] - myY[mySpringStart[s]];
+            myStrainBuckets[s] = (byte) Spring.getStrainBucket(Math.sqrt(dx * dx + dy * dy) -
+                                                               restLength[s]);
+        }
+        measureSprings();
+        // springs are copied again on the next capture of a model
+        myModel = null;
+        myStructureVersion = -1;
+        isDragging = false;
+        myStepCount = frame.getStepCount();
+        myStepSeconds = 0;
+        mySpatialIndex.invalidate();
+    }
+
+    /**
+     * @return number of masses in this snapshot
+     */
+    public int getMassCount () {
+        return myMassCount;
+    }
+
+    /**
+     * @return number of springs and muscles in this snapshot
+     */
+    public int getSpringCount () {
+        return mySpringCount;
+    }
+
+    /**
+     * @return number of physics steps the model had taken
+     */
+    public long getStepCount () {
+        return myStepCount;
+    }
+
+    /**
+     * @return real time the model's last physics step took, in seconds
+     */
+    public double getStepSeconds () {
+        return myStepSeconds;
+    }
+
+    /**
+     * @return index for finding the masses of this snapshot by position
+     */
+    public SpatialIndex getSpatialIndex () {
+        return mySpatialIndex;
+    }
+
+    /**
+     * @return widest any spring in this snapshot spans along x
+     */
+    double getMaxSpringWidth () {
+        return myMaxSpringWidth;
+    }
+
+    /**
+     * @return tallest any spring in this snapshot spans along y
+     */
+    double getMaxSpringHeight () {
+        return myMaxSpringHeight;
+    }
+
+    /**
+     * @return where the springs starting at each mass begin in
+     *         getSpringsByStart, with one more entry marking the end
+     */
+    int[] getStartOffsets () {
+        updateSpringIndex();
+        return myStartOffsets;
+    }
+
+    /**
+     * @return springs sorted by the mass they start at
+     */
+    int[] getSpringsByStart () {
+        updateSpringIndex();
+        return mySpringsByStart;
+    }
+
+    double[] getX () {
+        return myX;
+    }
+
+    double[] getY () {
+        return myY;
+    }
+
+    int[] getSpringStart () {
+        return mySpringStart;
+    }
+
+    int[] getSpringEnd () {
+        return mySpringEnd;
+    }
+
+    byte[] getStrainBuckets () {
+        return myStrainBuckets;
+    }
+
+    boolean isDragging () {
+        return isDragging;
+    }
+
+    double[] getDragLine () {
+        return myDragLine;
+    }
+
+    int getDragBucket () {
+        return myDragBucket;
+    }
+
+    // finds how far the springs span, to know how far outside the view a
+    // spring in view can start
+    private void measureSprings () {
+        double width = 0;
+        double height = 0;
+        for (int s = 0; s < mySpringCount; s++) {
+            width = Math.max(width, Math.abs(myX[mySpringEnd[s]] - myX[mySpringStart[s]]));
+            height = Math.max(height, Math.abs(myY[mySpringEnd[s]] - myY[mySpringStart[s]]));
+        }
+        myMaxSpringWidth = width;
+        myMaxSpringHeight = height;
+    }
+
+    // sorts the springs by start mass if they changed since they were last sorted
+    private void updateSpringIndex () {
+        if (isSpringIndexValid && myStartOffsets.length == myMassCount + 1) { return; }
+        isSpringIndexValid = true;
+        myStartOffsets = new int[myMassCount + 1];
+        if (mySpringsByStart.length < mySpringCount) {
+            mySpringsByStart = new int[mySpringCount];
+        }
+        for (int s = 0; s < mySpringCount; s++) {
+            myStartOffsets[mySpringStart[s] + 1]++;
+        }
+        for (int k = 0; k < myMassCount; k++) {
+            myStartOffsets[k + 1] += myStartOffsets[k];
+        }
+        int[] next = Arrays.copyOf(myStartOffsets, myMassCount);
+        for (int s = 0; s < mySpringCount; s++) {
+            mySpringsByStart[next[mySpringStart[s]]++] = s;
+        }
+    }
+
+    private static boolean isSame (int[] values, int[] others, int count) {
+        if (others.length < count) { return false; }
+        for (int k = 0; k < count; k++) {
+            if (values[k] != others[k]) { return false; }
+        }
+        return true;
+    }
+
+    private static double[] ensureCapacity (double[] buffer, int size) {
+        if (buffer.length >= size) { return buffer; }
+        return Arrays.copyOf(buffer, Math.max(size, buffer.length * 2));
+    }
+}
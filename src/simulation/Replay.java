@@ -0,0 +1,201 @@
+package simulation;
+
+import java.io.IOException;
+import util.IntHashMap;
+
+
+/**
+ * Plays back a recorded trajectory, forward or backward at any speed, with
+ * no physics at all.
+ *
+ * Playback moves through the recording by step count, so frames recorded
+ * further apart are shown for longer. Springs are drawn from the assembly
+ * the recording was made of, matching masses by ID; without it only the
+ * masses are drawn.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class Replay {
+    // playback starts at this many recorded frames per second
+    public static final double DEFAULT_FRAMES_PER_SECOND = 60;
+    private static final double FASTEST_FRAMES_PER_SECOND = 1e6;
+    private static final double SLOWEST_FRAMES_PER_SECOND = 1e-3;
+
+    private TrajectoryReader myReader;
+    private Assembly myAssembly;
+    // step count shown, between the first and last frame
+    private double myPosition;
+    private double myFirstStep;
+    private double myLastStep;
+    // steps per second of playback, negative to play backward
+    private double mySpeed;
+    private double myStepsPerFrame;
+    private boolean isPaused;
+    // the assembly's springs, numbered by the masses of frames with these IDs
+    private int[] mySpringIds;
+    private int mySpringCount;
+    private int[] mySpringStart = new int[0];
+    private int[] mySpringEnd = new int[0];
+    private double[] myRestLength = new double[0];
+
+    /**
+     * Create a playback of the given trajectory, drawing the springs of the
+     * given assembly, which may be null.
+     */
+    public Replay (TrajectoryReader reader, Assembly assembly) {
+        if (reader.getFrameCount() == 0) {
+            throw new IllegalArgumentException("trajectory has no frames");
+        }
+        myReader = reader;
+        myAssembly = assembly;
+        myFirstStep = reader.getStepCount(0);
+        myLastStep = reader.getStepCount(reader.getFrameCount() - 1);
+        myPosition = myFirstStep;
+        myStepsPerFrame = Math.max(1, (myLastStep - myFirstStep) /
+                                      Math.max(1, reader.getFrameCount() - 1));
+        mySpeed = DEFAULT_FRAMES_PER_SECOND * myStepsPerFrame;
+    }
+
+    /**
+     * @return number of frames in the recording
+     */
+    public int getFrameCount () {
+        return myReader.getFrameCount();
+    }
+
+    /**
+     * @return frame shown now
+     */
+    public int getFrame () {
+        return myReader.findFrame(myPosition);
+    }
+
+    /**
+     * @return how far through the recording playback is, from 0 to 1
+     */
+    public double getProgress () {
+        if (myLastStep == myFirstStep) { return 1; }
+        return (myPosition - myFirstStep) / (myLastStep - myFirstStep);
+    }
+
+    /**
+     * @return recorded steps played per second, negative when playing backward
+     */
+    public double getSpeed () {
+        return mySpeed;
+    }
+
+    /**
+     * @return true if playback is paused
+     */
+    public boolean isPaused () {
+        return isPaused;
+    }
+
+    /**
+     * Pauses playback, or carries on from the start or end if it had
+     * stopped there.
+     */
+    public void togglePaused () {
+        isPaused = !isPaused;
+        if (!isPaused && mySpeed > 0 && myPosition >= myLastStep) {
+            myPosition = myFirstStep;
+        }
+        else if (!isPaused && mySpeed < 0 && myPosition <= myFirstStep) {
+            myPosition = myLastStep;
+        }
+    }
+
+    /**
+     * Multiplies the speed of playback by the given factor, which may be
+     * negative to change direction.
+     */
+    public void changeSpeed (double factor) {
+        double framesPerSecond = Math.abs(mySpeed * factor) / myStepsPerFrame;
+        if (framesPerSecond > FASTEST_FRAMES_PER_SECOND ||
+            framesPerSecond < SLOWEST_FRAMES_PER_SECOND) { return; }
+        mySpeed *= factor;
+    }
+
+    /**
+     * Moves to the given point of the recording, from 0 for the first frame
+     * to 1 for the last.
+     */
+    public void seek (double progress) {
+        double clamped = Math.max(0, Math.min(1, progress));
+        myPosition = myFirstStep + clamped * (myLastStep - myFirstStep);
+    }
+
+    /**
+     * Moves the given number of frames forward, or backward if negative.
+     */
+    public void skipFrames (int frames) {
+        int frame = Math.max(0, Math.min(getFrameCount() - 1, getFrame() + frames));
+        myPosition = myReader.getStepCount(frame);
+    }
+
+    /**
+     * Moves playback on by the given real time, stopping at either end.
+     *
+     * @param elapsedTime : time since last update, in seconds
+     */
+    public void update (double elapsedTime) {
+        if (isPaused) { return; }
+        myPosition += mySpeed * elapsedTime;
+        if (myPosition >= myLastStep || myPosition <= myFirstStep) {
+            myPosition = Math.max(myFirstStep, Math.min(myLastStep, myPosition));
+            isPaused = true;
+        }
+    }
+
+    /**
+     * Copies what is needed to draw the frame shown now into the given
+     * snapshot.
+     */
+    public void capture (RenderSnapshot snapshot) {
+        TrajectoryFrame frame = myReader.getFrame(getFrame());
+        if (frame.getIds() != mySpringIds) {
+            findSprings(frame);
+        }
+        snapshot.capture(frame, mySpringCount, mySpringStart, mySpringEnd, myRestLength);
+    }
+
+    /**
+     * Closes the recording.
+     */
+    public void close () throws IOException {
+        myReader.close();
+    }
+
+    // numbers the ends of the assembly's springs by the masses of the given
+    // frame, leaving out any spring with a mass not recorded
+    private void findSprings (TrajectoryFrame frame) {
+        mySpringIds = frame.getIds();
+        mySpringCount = 0;
+        if (myAssembly == null) { return; }
+        IntHashMap handles = new IntHashMap();
+        for (int k = 0; k < frame.getMassCount(); k++) {
+            handles.put(frame.getId(k), k);
+        }
+        int springs = myAssembly.getSpringCount();
+        if (mySpringStart.length < springs) {
+            mySpringStart = new int[springs];
+            mySpringEnd = new int[springs];
+            myRestLength = new double[springs];
+        }
+        int[] ids = myAssembly.getIds();
+        int[] starts = myAssembly.getSpringStart();
+        int[] ends = myAssembly.getSpringEnd();
+        double[] lengths = myAssembly.getLength();
+        for (int s = 0; s < springs; s++) {
+            int start = handles.get(ids[starts[s]]);
+            int end = handles.get(ids[ends[s]]);
+            if (start != IntHashMap.MISSING && end != IntHashMap.MISSING) {
+                mySpringStart[mySpringCount] = start;
+                mySpringEnd[mySpringCount] = end;
+                myRestLength[mySpringCount] = lengths[s];
+                mySpringCount++;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package simulation;
+
+
+/**
+ * Classic fourth order Runge-Kutta. Evaluates the forces at four trial states
+ * per step and combines them with weights 1, 2, 2, 1. Most accurate per step,
+ * at four force evaluations per step.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class RungeKuttaIntegrator extends Integrator {
+    // fraction of the step at which each stage is evaluated, and its weight
+    private static final double[] STAGE_TIME = { 0.5, 0.5, 1, 0 };
+    private static final double[] STAGE_WEIGHT = { 1.0 / 6, 2.0 / 6, 2.0 / 6, 1.0 / 6 };
+
+    // state at the start of the step
+    private double[] myStartX;
+    private double[] myStartY;
+    private double[] myStartVelocityX;
+    private double[] myStartVelocityY;
+    // weighted sums of the stage derivatives
+    private double[] mySumX;
+    private double[] mySumY;
+    private double[] mySumVelocityX;
+    private double[] mySumVelocityY;
+
+    public RungeKuttaIntegrator () {
+        super(RUNGE_KUTTA);
+    }
+
+    @Override
+    public void step (ForceField forces, ParticleStore particles, double timeStep) {
+        int size = particles.size();
+        ensureBuffers(size);
+        double[] x = particles.getPositionX();
+        double[] y = particles.getPositionY();
+        double[] vx = particles.getVelocityX();
+        double[] vy = particles.getVelocityY();
+        System.arraycopy(x, 0, myStartX, 0, size);
+        System.arraycopy(y, 0, myStartY, 0, size);
+        System.arraycopy(vx, 0, myStartVelocityX, 0, size);
+        System.arraycopy(vy, 0, myStartVelocityY, 0, size);
+        for (int i = 0; i < size; i++) {
+            mySumX[i] = 0;
+            mySumY[i] = 0;
+            mySumVelocityX[i] = 0;
+            mySumVelocityY[i] = 0;
+        }
+        for (int stage = 0; stage < STAGE_WEIGHT.length; stage++) {
+            forces.applyForces(particles);
+            double[] fx = particles.getForceX();
+            double[] fy = particles.getForceY();
+            double[] inverseMass = particles.getInverseMass();
+            double weight = STAGE_WEIGHT[stage];
+            double next = STAGE_TIME[stage] * timeStep;
+            for (int i = 0; i < size; i++) {
+                double stageVelocityX = vx[i];
+                double stageVelocityY = vy[i];
+                double ax = fx[i] * inverseMass[i];
+                double ay = fy[i] * inverseMass[i];
+                mySumX[i] += weight * stageVelocityX;
+                mySumY[i] += weight * stageVelocityY;
+                mySumVelocityX[i] += weight * ax;
+                mySumVelocityY[i] += weight * ay;
+                // move to the trial state of the next stage
+                x[i] = myStartX[i] + next * stageVelocityX;
+                y[i] = myStartY[i] + next * stageVelocityY;
+                vx[i] = myStartVelocityX[i] + next * ax;
+                vy[i] = myStartVelocityY[i] + next * ay;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            x[i] = myStartX[i] + timeStep * mySumX[i];
+            y[i] = myStartY[i] + timeStep * mySumY[i];
+            vx[i] = myStartVelocityX[i] + timeStep * mySumVelocityX[i];
+            vy[i] = myStartVelocityY[i] + timeStep * mySumVelocityY[i];
+        }
+    }
+
+    private void ensureBuffers (int size) {
+        myStartX = ensureCapacity(myStartX, size);
+        myStartY = ensureCapacity(myStartY, size);
+        myStartVelocityX = ensureCapacity(myStartVelocityX, size);
+        myStartVelocityY = ensureCapacity(myStartVelocityY, size);
+        mySumX = ensureCapacity(mySumX, size);
+        mySumY = ensureCapacity(mySumY, size);
+        mySumVelocityX = ensureCapacity(mySumVelocityX, size);
+        mySumVelocityY = ensureCapacity(mySumVelocityY, size);
+    }
+}
@@ -0,0 +1,258 @@
+package simulation;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+
+/**
+ * Uniform grid over the positions of the masses in a store, or in a snapshot
+ * of one, for finding the masses near a point or inside a region without
+ * looking at every mass.
+ *
+ * The grid is rebuilt from scratch, in time proportional to the number of
+ * masses, the first time it is queried after invalidate() is called. Masses
+ * are bucketed by cell with a counting sort, so the handles in each cell sit
+ * next to each other in one array.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class SpatialIndex {
+    // handle returned when there is no mass to find
+    public static final int NONE = -1;
+    // cells are never smaller than a mass
+    public static final double MIN_CELL_SIZE = ParticleStore.PARTICLE_SIZE.width;
+    // keeps the grid small when a few masses fly far away
+    public static final int MAX_CELLS_PER_SIDE = 1024;
+
+    // exactly one of these is where the positions come from
+    private ParticleStore myParticles;
+    private RenderSnapshot mySnapshot;
+    private boolean isValid;
+    // positions the grid was built from
+    private int mySize;
+    private double[] myX;
+    private double[] myY;
+    // grid placement
+    private double myLeft;
+    private double myTop;
+    private double myCellSize;
+    private int myColumns;
+    private int myRows;
+    // handles of the masses in cell c are myItems[myCellStart[c]..myCellStart[c + 1])
+    private int[] myCellStart = new int[0];
+    private int[] myItems = new int[0];
+    private int[] myCells = new int[0];
+
+    /**
+     * Create an index over the masses of the given store.
+     */
+    public SpatialIndex (ParticleStore particles) {
+        myParticles = particles;
+        isValid = false;
+    }
+
+    /**
+     * Create an index over the masses of the given snapshot.
+     */
+    SpatialIndex (RenderSnapshot snapshot) {
+        mySnapshot = snapshot;
+        isValid = false;
+    }
+
+    /**
+     * Marks the index as out of date, because masses moved, were added or
+     * were removed. It is rebuilt the next time it is queried.
+     */
+    public void invalidate () {
+        isValid = false;
+    }
+
+    /**
+     * Returns handle of the mass closest to the given point, or NONE if there
+     * are no masses.
+     */
+    public int findNearest (double x, double y) {
+        update();
+        if (mySize == 0) { return NONE; }
+        int column = clamp(getColumn(x), myColumns);
+        int row = clamp(getRow(y), myRows);
+        int best = NONE;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        int maxRing = Math.max(myColumns, myRows);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // every cell in this ring is at least this far from the point
+            double ringDistance = (ring - 1) * myCellSize;
+            if (best != NONE && ringDistance > 0 && ringDistance * ringDistance > bestDistance) {
+                break;
+            }
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= myRows) {
+                    continue;
+                }
+                boolean edgeRow = (r == row - ring || r == row + ring);
+                for (int c = column - ring; c <= column + ring; c++) {
+                    boolean edgeColumn = (c == column - ring || c == column + ring);
+                    if (c < 0 || c >= myColumns || !(edgeRow || edgeColumn)) {
+                        continue;
+                    }
+                    int cell = r * myColumns + c;
+                    for (int k = myCellStart[cell]; k < myCellStart[cell + 1]; k++) {
+                        int mass = myItems[k];
+                        double distance = distanceSquared(mass, x, y);
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            best = mass;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns handles of all masses within the given distance of the given point.
+     */
+    public int[] findWithin (double x, double y, double radius) {
+        update();
+        int[] found = new int[0];
+        int count = 0;
+        int firstColumn = clamp(getColumn(x - radius), myColumns);
+        int lastColumn = clamp(getColumn(x + radius), myColumns);
+        int firstRow = clamp(getRow(y - radius), myRows);
+        int lastRow = clamp(getRow(y + radius), myRows);
+        for (int r = firstRow; r <= lastRow && mySize > 0; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int cell = r * myColumns + c;
+                for (int k = myCellStart[cell]; k < myCellStart[cell + 1]; k++) {
+                    int mass = myItems[k];
+                    if (distanceSquared(mass, x, y) <= radius * radius) {
+                        found = append(found, count++, mass);
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Returns handles of all masses whose centers lie inside the given rectangle.
+     */
+    public int[] findInside (Rectangle2D region) {
+        update();
+        int[] found = new int[0];
+        int count = 0;
+        int firstColumn = clamp(getColumn(region.getMinX()), myColumns);
+        int lastColumn = clamp(getColumn(region.getMaxX()), myColumns);
+        int firstRow = clamp(getRow(region.getMinY()), myRows);
+        int lastRow = clamp(getRow(region.getMaxY()), myRows);
+        for (int r = firstRow; r <= lastRow && mySize > 0; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int cell = r * myColumns + c;
+                for (int k = myCellStart[cell]; k < myCellStart[cell + 1]; k++) {
+                    int mass = myItems[k];
+                    double x = myX[mass];
+                    double y = myY[mass];
+                    if (x >= region.getMinX() && x <= region.getMaxX() &&
+                        y >= region.getMinY() && y <= region.getMaxY()) {
+                        found = append(found, count++, mass);
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    // rebuild the grid if masses changed since it was last built
+    private void update () {
+        if (isValid) { return; }
+        isValid = true;
+        if (myParticles != null) {
+            mySize = myParticles.size();
+            myX = myParticles.getPositionX();
+            myY = myParticles.getPositionY();
+        }
+        else {
+            mySize = mySnapshot.getMassCount();
+            myX = mySnapshot.getX();
+            myY = mySnapshot.getY();
+        }
+        int size = mySize;
+        double[] x = myX;
+        double[] y = myY;
+        double left = Double.POSITIVE_INFINITY;
+        double top = Double.POSITIVE_INFINITY;
+        double right = Double.NEGATIVE_INFINITY;
+        double bottom = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            left = Math.min(left, x[i]);
+            top = Math.min(top, y[i]);
+            right = Math.max(right, x[i]);
+            bottom = Math.max(bottom, y[i]);
+        }
+        if (size == 0) {
+            left = top = right = bottom = 0;
+        }
+        // about one mass per cell
+        double area = Math.max(right - left, MIN_CELL_SIZE) * Math.max(bottom - top, MIN_CELL_SIZE);
+        myCellSize = Math.max(MIN_CELL_SIZE, Math.sqrt(area / Math.max(1, size)));
+        double span = Math.max(right - left, bottom - top);
+        myCellSize = Math.max(myCellSize, span / MAX_CELLS_PER_SIDE);
+        myLeft = left;
+        myTop = top;
+        myColumns = (int) ((right - left) / myCellSize) + 1;
+        myRows = (int) ((bottom - top) / myCellSize) + 1;
+        int cellCount = myColumns * myRows;
+        if (myCellStart.length < cellCount + 1) {
+            myCellStart = new int[cellCount + 1];
+        }
+        if (myItems.length < size) {
+            myItems = new int[size];
+            myCells = new int[size];
+        }
+        Arrays.fill(myCellStart, 0, cellCount + 1, 0);
+        for (int i = 0; i < size; i++) {
+            myCells[i] = clamp(getRow(y[i]), myRows) * myColumns +
+                         clamp(getColumn(x[i]), myColumns);
+            myCellStart[myCells[i] + 1]++;
+        }
+        for (int c = 0; c < cellCount; c++) {
+            myCellStart[c + 1] += myCellStart[c];
+        }
+        for (int i = 0; i < size; i++) {
+            myItems[myCellStart[myCells[i]]++] = i;
+        }
+        // filling moved each start to the next cell's start, so shift back
+        for (int c = cellCount; c > 0; c--) {
+            myCellStart[c] = myCellStart[c - 1];
+        }
+        myCellStart[0] = 0;
+    }
+
+    private int getColumn (double x) {
+        return (int) Math.floor((x - myLeft) / myCellSize);
+    }
+
+    private int getRow (double y) {
+        return (int) Math.floor((y - myTop) / myCellSize);
+    }
+
+    private double distanceSquared (int mass, double x, double y) {
+        double dx = myX[mass] - x;
+        double dy = myY[mass] - y;
+        return dx * dx + dy * dy;
+    }
+
+    private static int clamp (int value, int count) {
+        return Math.max(0, Math.min(count - 1, value));
+    }
+
+    private static int[] append (int[] values, int count, int value) {
+        int[] result = values;
+        if (count == values.length) {
+            result = Arrays.copyOf(values, Math.max(8, values.length * 2));
+        }
+        result[count] = value;
+        return result;
+    }
+}
@@ -3,29 +3,36 @@ package simulation;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
-import util.Location;
-import util.Pixmap;
-import util.Sprite;
 import util.Vector;
 
 
 /**
- * Spring class extends Sprite class. Connects two Mass objects together by a Spring.
- * Applies forces on Mass objects when spring is stretched or compressed from rest length.
+ * Spring class. Connects two Mass objects together by a Spring.
+ * Applies forces on Mass objects when spring is stretched or compressed from rest length,
+ * and optionally damps how fast the masses move toward or away from each other.
+ * 
+ * A spring only keeps what the simulation needs: its two masses, which are
+ * handles into the particle store, its rest length, stiffness and damping.
+ * Anything about how it looks is worked out from the masses when it is painted.
  * 
  * @author Robert C. Duvall, Danny Goodman
  */
-public class Spring extends Sprite {
+public class Spring {
+    // how a spring's length compares to its rest length, for coloring
+    static final int COMPRESSED = 0;
+    static final int NEUTRAL = 1;
+    static final int STRETCHED = 2;
 
-    private static final Pixmap DEFUALT_IMAGE = new Pixmap("spring.gif");
-    private static final int IMAGE_HEIGHT = 20;
     private Mass myStart;
     private Mass myEnd;
     private double myLength;
     private double myK;
+    private double myDamping;
+    // length minus rest length when forces were last applied
+    private double myStretch;
 
     /**
-     * Spring Constructor. Initializes parameters and calls super class Sprite constructor.
+     * Spring Constructor. Initializes parameters.
      * 
      * @param start : Mass 1 connected by Spring
      * @param end : Mass 2 connected by Spring
@@ -33,11 +40,33 @@ public class Spring extends Sprite {
      * @param kVal : Stiffness
      */
     public Spring (Mass start, Mass end, double length, double kVal) {
-        super(DEFUALT_IMAGE, getCenter(start, end), getSize(start, end));
+        this(start, end, length, kVal, 0);
+    }
+
+    /**
+     * Spring Constructor for a damped spring.
+     * 
+     * @param start : Mass 1 connected by Spring
+     * @param end : Mass 2 connected by Spring
+     * @param length : Rest length of Spring
+     * @param kVal : Stiffness
+     * @param damping : force per unit of speed at which the masses approach or separate
+     */
+    public Spring (Mass start, Mass end, double length, double kVal, double damping) {
         myStart = start;
         myEnd = end;
         myLength = length;
         myK = kVal;
+        myDamping = damping;
+    }
+
+    /**
+     * Return the start mass of the spring.
+     * 
+     * @return Mass myStart. instance variable of Mass 1 connected by Spring
+     */
+    public Mass getStartMass () {
+        return myStart;
     }
 
     /**
@@ -55,9 +84,10 @@ public class Spring extends Sprite {
      * 
      * @param pen : Graphics 2D object painting in Canvas class
      */
-    @Override
     public void paint (Graphics2D pen) {
-        pen.setColor(getColor(myStart.distance(myEnd) - myLength));
+        double distance = Vector.distanceBetween(myStart.getX() - myEnd.getX(),
+                                                 myStart.getY() - myEnd.getY());
+        pen.setColor(getColor(distance - myLength));
         pen.drawLine((int) myStart.getX(), (int) myStart.getY(), (int) myEnd.getX(),
                      (int) myEnd.getY());
     }
@@ -68,20 +98,83 @@ public class Spring extends Sprite {
      * @param elapsedTime : Time elapsed since last update
      * @param bounds : Bounds of JFrame window for bouncing purposes
      */
-    @Override
     public void update (double elapsedTime, Dimension bounds) {
         double dx = myStart.getX() - myEnd.getX();
         double dy = myStart.getY() - myEnd.getY();
-        // apply hooke's law to each attached mass
-        Vector force = new Vector(Vector.angleBetween(dx, dy),
-                                  myK * (myLength - Vector.distanceBetween(dx, dy)));
-        myStart.applyForce(force);
-        force.negate();
-        myEnd.applyForce(force);
-        // update sprite values based on attached masses
-        setCenter(getCenter(myStart, myEnd));
-        setSize(getSize(myStart, myEnd));
-        setVelocity(Vector.angleBetween(dx, dy), 0);
+        double distance = Vector.distanceBetween(dx, dy);
+        double force = getForce(dx, dy, distance, myStart.getVelocityX() - myEnd.getVelocityX(),
+                                myStart.getVelocityY() - myEnd.getVelocityY());
+        double forceX = getXComponent(force, dx, distance);
+        double forceY = getYComponent(force, dy, distance);
+        myStart.applyForce(forceX, forceY);
+        myEnd.applyForce(-forceX, -forceY);
+    }
+
+    /**
+     * Advances any state of this spring that changes over time, once per
+     * physics step. A plain spring has none.
+     * 
+     * @param elapsedTime : Time elapsed since last update
+     */
+    void advance (double elapsedTime) {
+        // nothing changes over time
+    }
+
+    /**
+     * Adds the force that this spring applies to each attached Mass into the
+     * given accumulators, indexed by mass handle, instead of into the masses
+     * themselves. Both masses must live in the given store.
+     * 
+     * Only touches this spring's own state, so different springs may be used
+     * concurrently as long as each thread has its own accumulators.
+     * 
+     * @param particles : store both attached masses live in
+     * @param forceX : per-mass accumulator for the x component of the force
+     * @param forceY : per-mass accumulator for the y component of the force
+     */
+    void applyForce (ParticleStore particles, double[] forceX, double[] forceY) {
+        int start = myStart.getIndex();
+        int end = myEnd.getIndex();
+        double dx = particles.getX(start) - particles.getX(end);
+        double dy = particles.getY(start) - particles.getY(end);
+        double distance = Vector.distanceBetween(dx, dy);
+        double force = getForce(dx, dy, distance,
+                                particles.getVelocityX(start) - particles.getVelocityX(end),
+                                particles.getVelocityY(start) - particles.getVelocityY(end));
+        double springX = getXComponent(force, dx, distance);
+        double springY = getYComponent(force, dy, distance);
+        forceX[start] += springX;
+        forceY[start] += springY;
+        forceX[end] -= springX;
+        forceY[end] -= springY;
+    }
+
+    // hooke's law plus damping: force pushing the masses apart, given how far
+    // apart they are and their relative velocity; notes the stretch for drawing
+    private double getForce (double dx, double dy, double distance, double vx, double vy) {
+        myStretch = distance - myLength;
+        double force = myK * (myLength - distance);
+        if (myDamping != 0 && distance > 0) {
+            force -= myDamping * getSeparationSpeed(vx, vy, dx, dy, distance);
+        }
+        return force;
+    }
+
+    // rate at which the masses separate along the spring, given their relative velocity
+    private static double getSeparationSpeed (double vx, double vy,
+                                              double dx, double dy, double distance) {
+        return (vx * dx + vy * dy) / distance;
+    }
+
+    // coincident masses are pushed apart along the x axis
+    private static double getXComponent (double force, double dx, double distance) {
+        if (distance > 0) { return force * dx / distance; }
+        return force;
+    }
+
+    private static double getYComponent (double force, double dy, double distance) {
+        if (distance > 0) { return force * dy / distance; }
+        return 0;
     }
 
     /**
@@ -91,43 +184,50 @@ public class Spring extends Sprite {
      * @return Color of Spring dependent on spring length.
      */
     protected Color getColor (double diff) {
-        if (Vector.fuzzyEquals(diff, 0)) {
-            return Color.BLACK;
-        }
-        else if (diff < 0.0) {
-            return Color.BLUE;
-        }
-        else {
-            return Color.RED;
+        switch (getStrainBucket(diff)) {
+            case COMPRESSED:
+                return Color.BLUE;
+            case STRETCHED:
+                return Color.RED;
+            default:
+                return Color.BLACK;
         }
     }
 
     /**
-     * Compute center of this spring
-     * 
-     * @param start : Mass 1 connected to Spring
-     * @param end : Mass 2 connected to Spring
-     * @return Center of Spring
+     * Returns whether a spring whose length minus rest length is the given
+     * difference is COMPRESSED, NEUTRAL or STRETCHED.
      */
-    protected static Location getCenter (Mass start, Mass end) {
-        return new Location((start.getX() + end.getX()) / 2, (start.getY() + end.getY()) / 2);
+    static int getStrainBucket (double diff) {
+        if (Vector.fuzzyEquals(diff, 0)) {
+            return NEUTRAL;
+        }
+        else if (diff < 0.0) {
+            return COMPRESSED;
+        }
+        return STRETCHED;
     }
 
     /**
-     * Compute size of this spring
-     * 
-     * @param start : Mass 1 connected to Spring
-     * @param end : Mass 2 connected to Spring
-     * @return Size of Spring
+     * Returns length minus rest length of this spring when its forces were
+     * last applied, so drawing does not need to measure it again.
      */
-    protected static Dimension getSize (Mass start, Mass end) {
-        return new Dimension((int) start.distance(end), IMAGE_HEIGHT);
+    double getStretch () {
+        return myStretch;
     }
 
     protected double getLength () {
         return myLength;
     }
 
+    protected double getK () {
+        return myK;
+    }
+
+    protected double getDamping () {
+        return myDamping;
+    }
+
     protected void setLength (double length) {
         myLength = length;
     }
@@ -0,0 +1,207 @@
+package simulation;
+
+import java.util.List;
+
+
+/**
+ * Compact description of how springs connect the masses of a simulation:
+ * the endpoint handles of every spring as int arrays, and for every mass the
+ * masses it is connected to in compressed sparse row (CSR) form.
+ *
+ * The neighbors of mass i are getNeighbors()[k] for getOffsets()[i] <= k <
+ * getOffsets()[i + 1], and getSprings()[k] is the spring connecting them.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class SpringTopology {
+    private int myMassCount;
+    // endpoints of each spring
+    private int[] myStart;
+    private int[] myEnd;
+    // CSR adjacency per mass
+    private int[] myOffsets;
+    private int[] myNeighbors;
+    private int[] mySprings;
+
+    /**
+     * Build the topology of the given springs, whose masses must all live in a
+     * store holding the given number of masses.
+     *
+     * @param springs : springs connecting the masses
+     * @param massCount : number of masses in the store
+     */
+    public SpringTopology (List<Spring> springs, int massCount) {
+        myMassCount = massCount;
+        myStart = new int[springs.size()];
+        myEnd = new int[springs.size()];
+        myOffsets = new int[massCount + 1];
+        for (int s = 0; s < springs.size(); s++) {
+            myStart[s] = springs.get(s).getStartMass().getIndex();
+            myEnd[s] = springs.get(s).getEndMass().getIndex();
+            myOffsets[myStart[s] + 1]++;
+            myOffsets[myEnd[s] + 1]++;
+        }
+        for (int i = 0; i < massCount; i++) {
+            myOffsets[i + 1] += myOffsets[i];
+        }
+        myNeighbors = new int[myOffsets[massCount]];
+        mySprings = new int[myOffsets[massCount]];
+        int[] next = new int[massCount];
+        System.arraycopy(myOffsets, 0, next, 0, massCount);
+        for (int s = 0; s < myStart.length; s++) {
+            addNeighbor(next, myStart[s], myEnd[s], s);
+            addNeighbor(next, myEnd[s], myStart[s], s);
+        }
+    }
+
+    /**
+     * @return number of masses this topology describes
+     */
+    public int getMassCount () {
+        return myMassCount;
+    }
+
+    /**
+     * @return number of springs in this topology
+     */
+    public int getSpringCount () {
+        return myStart.length;
+    }
+
+    /**
+     * Returns handle of the start mass of given spring.
+     */
+    public int getStart (int spring) {
+        return myStart[spring];
+    }
+
+    /**
+     * Returns handle of the end mass of given spring.
+     */
+    public int getEnd (int spring) {
+        return myEnd[spring];
+    }
+
+    /**
+     * Returns number of springs attached to given mass.
+     */
+    public int getDegree (int mass) {
+        return myOffsets[mass + 1] - myOffsets[mass];
+    }
+
+    /**
+     * @return CSR row offsets: the neighbors of mass i start at entry i
+     */
+    public int[] getOffsets () {
+        return myOffsets;
+    }
+
+    /**
+     * @return CSR column entries: handles of the neighboring masses
+     */
+    public int[] getNeighbors () {
+        return myNeighbors;
+    }
+
+    /**
+     * @return for each CSR entry, the spring connecting the two masses
+     */
+    public int[] getSprings () {
+        return mySprings;
+    }
+
+    /**
+     * @return largest difference between the handles of two connected masses
+     */
+    public int getBandwidth () {
+        int bandwidth = 0;
+        for (int s = 0; s < myStart.length; s++) {
+            bandwidth = Math.max(bandwidth, Math.abs(myStart[s] - myEnd[s]));
+        }
+        return bandwidth;
+    }
+
+    /**
+     * Computes a Reverse Cuthill-McKee ordering of the masses, which places
+     * connected masses close together so that their handles differ little.
+     *
+     * Each connected group of masses is visited breadth first, starting from
+     * its mass with fewest springs and visiting neighbors with fewer springs
+     * first; the final order is the reverse of the visiting order.
+     *
+     * @return order such that order[k] is the current handle of the mass that
+     *         should be at position k
+     */
+    public int[] reverseCuthillMcKee () {
+        int[] order = new int[myMassCount];
+        boolean[] visited = new boolean[myMassCount];
+        int[] starts = sortByDegree();
+        int tail = 0;
+        for (int candidate : starts) {
+            if (visited[candidate]) {
+                continue;
+            }
+            visited[candidate] = true;
+            order[tail++] = candidate;
+            // the order array doubles as the breadth first queue
+            for (int head = tail - 1; head < tail; head++) {
+                int mass = order[head];
+                int first = tail;
+                for (int k = myOffsets[mass]; k < myOffsets[mass + 1]; k++) {
+                    int neighbor = myNeighbors[k];
+                    if (!visited[neighbor]) {
+                        visited[neighbor] = true;
+                        order[tail++] = neighbor;
+                    }
+                }
+                sortByDegree(order, first, tail);
+            }
+        }
+        for (int low = 0, high = myMassCount - 1; low < high; low++, high--) {
+            int swap = order[low];
+            order[low] = order[high];
+            order[high] = swap;
+        }
+        return order;
+    }
+
+    private void addNeighbor (int[] next, int mass, int neighbor, int spring) {
+        myNeighbors[next[mass]] = neighbor;
+        mySprings[next[mass]] = spring;
+        next[mass]++;
+    }
+
+    // counting sort of all masses by number of springs
+    private int[] sortByDegree () {
+        int maxDegree = 0;
+        for (int i = 0; i < myMassCount; i++) {
+            maxDegree = Math.max(maxDegree, getDegree(i));
+        }
+        int[] counts = new int[maxDegree + 2];
+        for (int i = 0; i < myMassCount; i++) {
+            counts[getDegree(i) + 1]++;
+        }
+        for (int d = 0; d <= maxDegree; d++) {
+            counts[d + 1] += counts[d];
+        }
+        int[] sorted = new int[myMassCount];
+        for (int i = 0; i < myMassCount; i++) {
+            sorted[counts[getDegree(i)]++] = i;
+        }
+        return sorted;
+    }
+
+    // insertion sort by number of springs, since few masses are added at a time
+    private void sortByDegree (int[] masses, int first, int last) {
+        for (int i = first + 1; i < last; i++) {
+            int mass = masses[i];
+            int degree = getDegree(mass);
+            int j = i - 1;
+            while (j >= first && getDegree(masses[j]) > degree) {
+                masses[j + 1] = masses[j];
+                j--;
+            }
+            masses[j + 1] = mass;
+        }
+    }
+}
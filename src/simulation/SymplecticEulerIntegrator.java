@@ -0,0 +1,33 @@
+package simulation;
+
+
+/**
+ * Semi-implicit (symplectic) Euler: first updates velocities from the forces,
+ * then moves masses by their new velocities. One force evaluation per step.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class SymplecticEulerIntegrator extends Integrator {
+
+    public SymplecticEulerIntegrator () {
+        super(SYMPLECTIC_EULER);
+    }
+
+    @Override
+    public void step (ForceField forces, ParticleStore particles, double timeStep) {
+        forces.applyForces(particles);
+        double[] x = particles.getPositionX();
+        double[] y = particles.getPositionY();
+        double[] vx = particles.getVelocityX();
+        double[] vy = particles.getVelocityY();
+        double[] fx = particles.getForceX();
+        double[] fy = particles.getForceY();
+        double[] inverseMass = particles.getInverseMass();
+        for (int i = 0; i < particles.size(); i++) {
+            vx[i] += fx[i] * inverseMass[i] * timeStep;
+            vy[i] += fy[i] * inverseMass[i] * timeStep;
+            x[i] += vx[i] * timeStep;
+            y[i] += vy[i] * timeStep;
+        }
+    }
+}
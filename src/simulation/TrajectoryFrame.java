@@ -0,0 +1,76 @@
+package simulation;
+
+/**
+ * Positions of every mass at one recorded step of a trajectory, as read
+ * back by a TrajectoryReader. Frames are shared by the reader's cache, so
+ * they are never changed once read.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class TrajectoryFrame {
+    private long myStepCount;
+    private int myMassCount;
+    private double myQuantum;
+    // IDs are shared with the frames around this one while they do not change
+    private int[] myIds;
+    // positions as whole multiples of the quantum
+    private long[] myX;
+    private long[] myY;
+
+    TrajectoryFrame (long stepCount, int massCount, double quantum, int[] ids, long[] x,
+                     long[] y) {
+        myStepCount = stepCount;
+        myMassCount = massCount;
+        myQuantum = quantum;
+        myIds = ids;
+        myX = x;
+        myY = y;
+    }
+
+    /**
+     * @return number of physics steps the model had taken
+     */
+    public long getStepCount () {
+        return myStepCount;
+    }
+
+    /**
+     * @return number of masses in this frame
+     */
+    public int getMassCount () {
+        return myMassCount;
+    }
+
+    /**
+     * Returns ID of the given mass in the file it was loaded from.
+     */
+    public int getId (int index) {
+        return myIds[index];
+    }
+
+    /**
+     * Returns x coordinate of the given mass.
+     */
+    public double getX (int index) {
+        return myX[index] * myQuantum;
+    }
+
+    /**
+     * Returns y coordinate of the given mass.
+     */
+    public double getY (int index) {
+        return myY[index] * myQuantum;
+    }
+
+    int[] getIds () {
+        return myIds;
+    }
+
+    long[] getRoundedX () {
+        return myX;
+    }
+
+    long[] getRoundedY () {
+        return myY;
+    }
+}
@@ -0,0 +1,383 @@
+package simulation;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+
+/**
+ * Reads back a trajectory written by a TrajectoryRecorder, one frame at a
+ * time in any order, without reading the whole file.
+ *
+ * Opening a trajectory reads only the small header of each frame. The file
+ * is memory mapped and a frame is decoded when asked for, starting from the
+ * nearest decoded frame before it, or else from its key frame. The last few
+ * frames asked for are kept decoded, so playing forward decodes just one
+ * frame each time. A frame cut short at the end of the file, as left by a
+ * recording still running or stopped by a crash, is ignored.
+ *
+ * A reader is not safe to share between threads.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class TrajectoryReader implements Closeable {
+    // decoded frames kept
+    public static final int CACHE_SIZE = 8;
+
+    // bytes before the first frame, and before each frame's compressed data
+    private static final int HEADER_SIZE = 20;
+    private static final int FRAME_HEADER_SIZE = 17;
+    // most bytes mapped as one buffer
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private File myFile;
+    private RandomAccessFile myInput;
+    private double myQuantum;
+    private int myFrameCount;
+    // per frame: where its compressed data is and what it holds
+    private int[] mySegment;
+    private int[] myOffset;
+    private int[] myLength;
+    private long[] myStepCount;
+    private int[] myMassCount;
+    private int[] myKeyFrame;
+    private MappedByteBuffer[] mySegments;
+    private Map<Integer, TrajectoryFrame> myCache;
+    private Inflater myInflater;
+    private byte[] myDecoded = new byte[0];
+    private int myDecodedLength;
+    private int myPosition;
+    // IDs of the last key frame decoded, shared with later frames that have the same IDs
+    private int[] myLastIds = new int[0];
+
+    /**
+     * Opens the given trajectory.
+     *
+     * @throws IllegalArgumentException if the file is not a trajectory this
+     *         version can read
+     */
+    public TrajectoryReader (File file) throws IOException {
+        myFile = file;
+        myCache = new LinkedHashMap<Integer, TrajectoryFrame>(CACHE_SIZE * 2, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry (Map.Entry<Integer, TrajectoryFrame> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        myInflater = new Inflater();
+        long[] offsets = readIndex();
+        myInput = new RandomAccessFile(file, "r");
+        try {
+            mapSegments(offsets);
+        }
+        catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of frames in the trajectory
+     */
+    public int getFrameCount () {
+        return myFrameCount;
+    }
+
+    /**
+     * Returns number of physics steps the model had taken at the given frame.
+     */
+    public long getStepCount (int frame) {
+        return myStepCount[frame];
+    }
+
+    /**
+     * Returns number of masses at the given frame.
+     */
+    public int getMassCount (int frame) {
+        return myMassCount[frame];
+    }
+
+    /**
+     * Returns the last frame recorded at or before the given step, or the
+     * first frame if all are after it.
+     */
+    public int findFrame (double stepCount) {
+        int low = 0;
+        int high = myFrameCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (myStepCount[middle] <= stepCount) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the given frame, decoding it if it is not kept already.
+     */
+    public TrajectoryFrame getFrame (int index) {
+        if (index < 0 || index >= myFrameCount) {
+            throw new IndexOutOfBoundsException("no frame " + index + " in " + myFile.getName());
+        }
+        TrajectoryFrame result = myCache.get(index);
+        if (result != null) { return result; }
+        // start from the latest decoded frame since the key frame, if any
+        int start = index - 1;
+        TrajectoryFrame previous = null;
+        while (start >= myKeyFrame[index] && previous == null) {
+            previous = myCache.get(start);
+            start--;
+        }
+        int[] ids;
+        long[] x;
+        long[] y;
+        int frame;
+        if (previous == null) {
+            frame = myKeyFrame[index];
+            int count = myMassCount[frame];
+            ids = new int[count];
+            x = new long[count];
+            y = new long[count];
+            decodeKeyFrame(frame, ids, x, y);
+            ids = shareIds(ids);
+        }
+        else {
+            frame = start + 1;
+            ids = previous.getIds();
+            x = Arrays.copyOf(previous.getRoundedX(), previous.getMassCount());
+            y = Arrays.copyOf(previous.getRoundedY(), previous.getMassCount());
+        }
+        for (frame++; frame <= index; frame++) {
+            decodeChanges(frame, x, y);
+        }
+        result = new TrajectoryFrame(myStepCount[index], myMassCount[index], myQuantum, ids, x, y);
+        myCache.put(index, result);
+        return result;
+    }
+
+    /**
+     * Closes the file.
+     */
+    @Override
+    public void close () throws IOException {
+        myInflater.end();
+        myCache.clear();
+        mySegments = null;
+        if (myInput != null) {
+            myInput.close();
+        }
+    }
+
+    // reads the header of the file and of every frame, returning where each frame's data is
+    private long[] readIndex () throws IOException {
+        long size = myFile.length();
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(myFile), 1 << 16));
+        try {
+            if (size < HEADER_SIZE || in.readInt() != TrajectoryRecorder.MAGIC) {
+                throw new IllegalArgumentException(myFile.getName() + ": not a trajectory");
+            }
+            int version = in.readInt();
+            if (version != TrajectoryRecorder.VERSION) {
+                throw new IllegalArgumentException(myFile.getName() + ": unsupported version " +
+                                                   version);
+            }
+            myQuantum = in.readDouble();
+            in.readInt();
+            List<long[]> frames = new ArrayList<long[]>();
+            long position = HEADER_SIZE;
+            int lastKeyFrame = -1;
+            while (position + FRAME_HEADER_SIZE <= size) {
+                int length = in.readInt();
+                long step = in.readLong();
+                int count = in.readInt();
+                int flags = in.readByte();
+                position += FRAME_HEADER_SIZE;
+                if (length < 0 || count < 0 || position + length > size) {
+                    break;
+                }
+                if ((flags & TrajectoryRecorder.KEY_FRAME_FLAG) != 0) {
+                    lastKeyFrame = frames.size();
+                }
+                // frames before the first key frame cannot be decoded
+                if (lastKeyFrame >= 0) {
+                    frames.add(new long[] { position, length, step, count, lastKeyFrame });
+                }
+                skipFully(in, length);
+                position += length;
+            }
+            myFrameCount = frames.size();
+            mySegment = new int[myFrameCount];
+            myOffset = new int[myFrameCount];
+            myLength = new int[myFrameCount];
+            myStepCount = new long[myFrameCount];
+            myMassCount = new int[myFrameCount];
+            myKeyFrame = new int[myFrameCount];
+            long[] offsets = new long[myFrameCount];
+            for (int k = 0; k < myFrameCount; k++) {
+                long[] frame = frames.get(k);
+                offsets[k] = frame[0];
+                myLength[k] = (int) frame[1];
+                myStepCount[k] = frame[2];
+                myMassCount[k] = (int) frame[3];
+                myKeyFrame[k] = (int) frame[4];
+            }
+            return offsets;
+        }
+        catch (EOFException e) {
+            throw new IllegalArgumentException(myFile.getName() + ": not a trajectory");
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    // maps the file in as few buffers as possible, each holding whole frames
+    private void mapSegments (long[] offsets) throws IOException {
+        FileChannel channel = myInput.getChannel();
+        List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+        int first = 0;
+        while (first < myFrameCount) {
+            long start = offsets[first];
+            int last = first;
+            while (last + 1 < myFrameCount &&
+                   offsets[last + 1] + myLength[last + 1] - start <= MAX_SEGMENT_SIZE) {
+                last++;
+            }
+            for (int k = first; k <= last; k++) {
+                mySegment[k] = segments.size();
+                myOffset[k] = (int) (offsets[k] - start);
+            }
+            segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                     offsets[last] + myLength[last] - start));
+            first = last + 1;
+        }
+        mySegments = segments.toArray(new MappedByteBuffer[segments.size()]);
+    }
+
+    // key frames hold IDs and positions each as the change from the mass before
+    private void decodeKeyFrame (int frame, int[] ids, long[] x, long[] y) {
+        inflate(frame, ids.length * 3);
+        int previous = 0;
+        for (int k = 0; k < ids.length; k++) {
+            previous += (int) readVarLong();
+            ids[k] = previous;
+        }
+        readSums(x);
+        readSums(y);
+        checkDecoded(frame);
+    }
+
+    // other frames hold each position as the change from the frame before
+    private void decodeChanges (int frame, long[] x, long[] y) {
+        if (myKeyFrame[frame] == frame || myMassCount[frame] != x.length) {
+            throw new IllegalStateException("frame " + frame + " is not a change");
+        }
+        inflate(frame, x.length * 2);
+        for (int k = 0; k < x.length; k++) {
+            x[k] += readVarLong();
+        }
+        for (int k = 0; k < y.length; k++) {
+            y[k] += readVarLong();
+        }
+        checkDecoded(frame);
+    }
+
+    private void readSums (long[] values) {
+        long previous = 0;
+        for (int k = 0; k < values.length; k++) {
+            previous += readVarLong();
+            values[k] = previous;
+        }
+    }
+
+    // uncompresses the given frame, which holds the given number of values
+    private void inflate (int frame, int values) {
+        int maxLength = values * 10;
+        if (myDecoded.length < maxLength) {
+            myDecoded = new byte[maxLength];
+        }
+        ByteBuffer data = mySegments[mySegment[frame]].duplicate();
+        data.position(myOffset[frame]);
+        data.limit(myOffset[frame] + myLength[frame]);
+        myInflater.reset();
+        myInflater.setInput(data);
+        try {
+            int length = 0;
+            while (!myInflater.finished() && length < myDecoded.length) {
+                int inflated = myInflater.inflate(myDecoded, length, myDecoded.length - length);
+                if (inflated == 0 && (myInflater.needsInput() || myInflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (!myInflater.finished()) { throw damaged(frame); }
+            myDecodedLength = length;
+        }
+        catch (DataFormatException e) {
+            throw damaged(frame);
+        }
+        myPosition = 0;
+    }
+
+    private long readVarLong () {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (myPosition == myDecodedLength) { throw damaged(-1); }
+            b = myDecoded[myPosition++];
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while (b < 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    // every value of a frame should be used, and no more
+    private void checkDecoded (int frame) {
+        if (myPosition != myDecodedLength) { throw damaged(frame); }
+    }
+
+    private IllegalArgumentException damaged (int frame) {
+        return new IllegalArgumentException(myFile.getName() + ": damaged frame" +
+                                            (frame < 0 ? "" : " " + frame));
+    }
+
+    // the given IDs, or equal IDs already decoded, so frames can tell they match
+    private int[] shareIds (int[] ids) {
+        if (Arrays.equals(ids, myLastIds)) { return myLastIds; }
+        myLastIds = ids;
+        return ids;
+    }
+
+    private static void skipFully (DataInputStream in, int length) throws IOException {
+        int skipped = 0;
+        while (skipped < length) {
+            int n = in.skipBytes(length - skipped);
+            if (n <= 0) { throw new EOFException(); }
+            skipped += n;
+        }
+    }
+}
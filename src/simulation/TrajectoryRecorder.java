@@ -0,0 +1,363 @@
+package simulation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+
+/**
+ * Records the positions of every mass every few steps to a trajectory file,
+ * for analysing a run afterwards or playing it back.
+ *
+ * The thread stepping the model only copies positions into one of a fixed
+ * pool of frames. A background thread rounds them to a multiple of the
+ * quantum, encodes each as the change since the previous recorded frame,
+ * compresses the result and writes it. When every frame in the pool is
+ * waiting to be written, the next one is either dropped or waited for,
+ * according to the backpressure policy, so memory never grows.
+ *
+ * Every so often, and whenever the masses change, a key frame is written
+ * holding each mass's ID and position on its own, so reading can start at
+ * any key frame.
+ *
+ * File layout: magic, version, quantum, key frame interval; then per frame:
+ * compressed length, step count, mass count, flags, and the compressed
+ * frame, all big endian.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class TrajectoryRecorder {
+    // "SPRT"
+    public static final int MAGIC = 0x53505254;
+    public static final int VERSION = 1;
+    public static final int KEY_FRAME_FLAG = 1;
+    public static final double DEFAULT_QUANTUM = 1.0 / 256;
+    public static final int DEFAULT_POOL_SIZE = 4;
+    public static final int DEFAULT_KEY_FRAME_INTERVAL = 32;
+
+    /**
+     * What to do with a frame when every buffer is waiting to be written.
+     */
+    public enum Backpressure {
+        // skip the frame, so the simulation never waits
+        DROP,
+        // wait for the writer, so no frame is lost
+        BLOCK
+    }
+
+    // most bytes a zigzag varint of a long can take
+    private static final int MAX_VARINT_BYTES = 10;
+
+    private File myFile;
+    private int myInterval;
+    private double myQuantum;
+    private int myKeyFrameInterval;
+    private Backpressure myPolicy;
+    private BlockingQueue<Frame> myFreeFrames;
+    private BlockingQueue<Frame> myFullFrames;
+    private Writer myWriter;
+    private volatile long myDroppedFrames;
+    private boolean isClosed;
+
+    /**
+     * Create a recorder writing to the given file, with the default quantum,
+     * pool size and key frame interval.
+     *
+     * @param interval : record every this many steps
+     */
+    public TrajectoryRecorder (File file, int interval, Backpressure policy) throws IOException {
+        this(file, interval, DEFAULT_QUANTUM, DEFAULT_POOL_SIZE, DEFAULT_KEY_FRAME_INTERVAL,
+             policy);
+    }
+
+    /**
+     * Create a recorder writing to the given file.
+     *
+     * @param interval : record every this many steps
+     * @param quantum : positions are rounded to a multiple of this
+     * @param poolSize : most frames copied but not yet written
+     * @param keyFrameInterval : most frames between key frames
+     * @param policy : what to do when the writer falls behind
+     */
+    public TrajectoryRecorder (File file, int interval, double quantum, int poolSize,
+                               int keyFrameInterval, Backpressure policy) throws IOException {
+        if (interval < 1 || poolSize < 1 || keyFrameInterval < 1) {
+            throw new IllegalArgumentException("interval, pool size and key frame interval " +
+                                               "must be positive");
+        }
+        if (!(quantum > 0)) {
+            throw new IllegalArgumentException("quantum must be positive: " + quantum);
+        }
+        myFile = file;
+        myInterval = interval;
+        myQuantum = quantum;
+        myKeyFrameInterval = keyFrameInterval;
+        myPolicy = policy;
+        myFreeFrames = new ArrayBlockingQueue<Frame>(poolSize);
+        myFullFrames = new ArrayBlockingQueue<Frame>(poolSize + 1);
+        for (int k = 0; k < poolSize; k++) {
+            myFreeFrames.add(new Frame());
+        }
+        myWriter = new Writer(new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 1 << 16)));
+        myWriter.start();
+    }
+
+    /**
+     * @return file being recorded to
+     */
+    public File getFile () {
+        return myFile;
+    }
+
+    /**
+     * @return number of frames skipped because the writer was behind
+     */
+    public long getDroppedFrames () {
+        return myDroppedFrames;
+    }
+
+    /**
+     * Copies the positions of the given model's masses to be written, if
+     * this is a step to record. Called by the model after each step.
+     */
+    void record (Model model) {
+        if (isClosed || model.getStepCount() % myInterval != 0) { return; }
+        Frame frame = null;
+        if (myPolicy == Backpressure.BLOCK) {
+            try {
+                frame = myFreeFrames.take();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        else {
+            frame = myFreeFrames.poll();
+        }
+        if (frame == null) {
+            myDroppedFrames++;
+            return;
+        }
+        frame.copy(model.getParticles(), model.getStepCount());
+        myFullFrames.add(frame);
+    }
+
+    /**
+     * Writes every frame recorded so far and closes the file. Further frames
+     * are ignored.
+     *
+     * @throws IOException if any frame could not be written
+     */
+    public void close () throws IOException {
+        if (isClosed) { return; }
+        isClosed = true;
+        myFullFrames.add(Frame.END);
+        boolean isInterrupted = false;
+        while (myWriter.isAlive()) {
+            try {
+                myWriter.join();
+            }
+            catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (myWriter.myError != null) { throw myWriter.myError; }
+    }
+
+    // writes one more value to the given buffer, returning the new end
+    private static int writeVarLong (byte[] buffer, int end, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer[end++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        buffer[end++] = (byte) zigzag;
+        return end;
+    }
+
+
+    /**
+     * Positions of every mass after one step, kept in the pool and reused.
+     */
+    private static class Frame {
+        // queued to tell the writer to finish
+        static final Frame END = new Frame();
+
+        long myStepCount;
+        int myMassCount;
+        int[] myIds = new int[0];
+        double[] myX = new double[0];
+        double[] myY = new double[0];
+
+        void copy (ParticleStore particles, long stepCount) {
+            int count = particles.size();
+            if (myX.length < count) {
+                myIds = new int[count];
+                myX = new double[count];
+                myY = new double[count];
+            }
+            System.arraycopy(particles.getIds(), 0, myIds, 0, count);
+            System.arraycopy(particles.getPositionX(), 0, myX, 0, count);
+            System.arraycopy(particles.getPositionY(), 0, myY, 0, count);
+            myMassCount = count;
+            myStepCount = stepCount;
+        }
+    }
+
+
+    /**
+     * Encodes, compresses and writes frames as they are handed over, then
+     * returns them to the pool.
+     */
+    private class Writer extends Thread {
+        private DataOutputStream myOutput;
+        private Deflater myDeflater;
+        private byte[] myEncoded = new byte[0];
+        private byte[] myCompressed = new byte[0];
+        // previous frame written, rounded
+        private int[] myLastIds = new int[0];
+        private long[] myLastX = new long[0];
+        private long[] myLastY = new long[0];
+        private int myLastCount = -1;
+        private int myFramesSinceKey;
+        private IOException myError;
+
+        public Writer (DataOutputStream output) {
+            super("trajectory");
+            setDaemon(true);
+            myOutput = output;
+            myDeflater = new Deflater(Deflater.BEST_SPEED);
+        }
+
+        @Override
+        public void run () {
+            try {
+                myOutput.writeInt(MAGIC);
+                myOutput.writeInt(VERSION);
+                myOutput.writeDouble(myQuantum);
+                myOutput.writeInt(myKeyFrameInterval);
+                Frame frame = takeFrame();
+                while (frame != Frame.END) {
+                    write(frame);
+                    myFreeFrames.add(frame);
+                    frame = takeFrame();
+                }
+            }
+            catch (IOException e) {
+                myError = e;
+                // keep returning frames so the simulation is never blocked
+                Frame frame = takeFrame();
+                while (frame != Frame.END) {
+                    myFreeFrames.add(frame);
+                    frame = takeFrame();
+                }
+            }
+            finally {
+                myDeflater.end();
+                try {
+                    myOutput.close();
+                }
+                catch (IOException e) {
+                    if (myError == null) {
+                        myError = e;
+                    }
+                }
+            }
+        }
+
+        private Frame takeFrame () {
+            while (true) {
+                try {
+                    return myFullFrames.take();
+                }
+                catch (InterruptedException e) {
+                    // only close stops the writer
+                }
+            }
+        }
+
+        private void write (Frame frame) throws IOException {
+            int count = frame.myMassCount;
+            boolean isKeyFrame = myFramesSinceKey >= myKeyFrameInterval - 1 ||
+                                 count != myLastCount || !hasSameIds(frame);
+            int length = encode(frame, isKeyFrame);
+            myDeflater.reset();
+            myDeflater.setInput(myEncoded, 0, length);
+            myDeflater.finish();
+            int compressed = 0;
+            while (!myDeflater.finished()) {
+                if (compressed == myCompressed.length) {
+                    myCompressed = Arrays.copyOf(myCompressed,
+                                                 Math.max(1 << 16, myCompressed.length * 2));
+                }
+                compressed += myDeflater.deflate(myCompressed, compressed,
+                                                 myCompressed.length - compressed);
+            }
+            myOutput.writeInt(compressed);
+            myOutput.writeLong(frame.myStepCount);
+            myOutput.writeInt(count);
+            myOutput.writeByte(isKeyFrame ? KEY_FRAME_FLAG : 0);
+            myOutput.write(myCompressed, 0, compressed);
+            myFramesSinceKey = isKeyFrame ? 0 : myFramesSinceKey + 1;
+            myLastCount = count;
+        }
+
+        private boolean hasSameIds (Frame frame) {
+            for (int k = 0; k < frame.myMassCount; k++) {
+                if (frame.myIds[k] != myLastIds[k]) { return false; }
+            }
+            return true;
+        }
+
+        // key frames hold IDs and positions, each as the change from the mass
+        // before, which is usually nearby; other frames hold each position as
+        // the change from the same mass in the previous frame
+        private int encode (Frame frame, boolean isKeyFrame) {
+            int count = frame.myMassCount;
+            int needed = count * MAX_VARINT_BYTES * 3;
+            if (myEncoded.length < needed) {
+                myEncoded = new byte[needed];
+            }
+            if (myLastX.length < count) {
+                myLastIds = Arrays.copyOf(myLastIds, count);
+                myLastX = Arrays.copyOf(myLastX, count);
+                myLastY = Arrays.copyOf(myLastY, count);
+            }
+            int end = 0;
+            if (isKeyFrame) {
+                int previous = 0;
+                for (int k = 0; k < count; k++) {
+                    end = writeVarLong(myEncoded, end, (long) frame.myIds[k] - previous);
+                    previous = frame.myIds[k];
+                }
+                System.arraycopy(frame.myIds, 0, myLastIds, 0, count);
+            }
+            end = encode(frame.myX, myLastX, count, isKeyFrame, end);
+            end = encode(frame.myY, myLastY, count, isKeyFrame, end);
+            return end;
+        }
+
+        private int encode (double[] values, long[] last, int count, boolean isKeyFrame,
+                            int end) {
+            double scale = 1 / myQuantum;
+            long previous = 0;
+            for (int k = 0; k < count; k++) {
+                long rounded = Math.round(values[k] * scale);
+                end = writeVarLong(myEncoded, end, rounded - (isKeyFrame ? previous : last[k]));
+                previous = rounded;
+                last[k] = rounded;
+            }
+            return end;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package simulation;
+
+import java.util.Arrays;
+
+
+/**
+ * Velocity Verlet in kick-drift-kick form: a half step of velocity from the
+ * previous forces, a full step of position, then another half step of
+ * velocity from the forces at the new positions.
+ *
+ * The forces at the end of one step are kept for the start of the next, so
+ * each step costs one force evaluation once the integrator is warmed up.
+ * Velocity dependent forces are evaluated at the half step velocity.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class VelocityVerletIntegrator extends Integrator {
+    // acceleration at the end of the previous step
+    private double[] myAccelerationX;
+    private double[] myAccelerationY;
+    // store and version the accelerations were computed for
+    private ParticleStore myParticles;
+    private int myVersion;
+
+    public VelocityVerletIntegrator () {
+        super(VELOCITY_VERLET);
+    }
+
+    @Override
+    public void step (ForceField forces, ParticleStore particles, double timeStep) {
+        int size = particles.size();
+        if (particles != myParticles || particles.getVersion() != myVersion) {
+            myAccelerationX = ensureCapacity(myAccelerationX, size);
+            myAccelerationY = ensureCapacity(myAccelerationY, size);
+            forces.applyForces(particles);
+            storeAcceleration(particles);
+            myParticles = particles;
+            myVersion = particles.getVersion();
+        }
+        double half = timeStep / 2;
+        double[] x = particles.getPositionX();
+        double[] y = particles.getPositionY();
+        double[] vx = particles.getVelocityX();
+        double[] vy = particles.getVelocityY();
+        for (int i = 0; i < size; i++) {
+            vx[i] += myAccelerationX[i] * half;
+            vy[i] += myAccelerationY[i] * half;
+            x[i] += vx[i] * timeStep;
+            y[i] += vy[i] * timeStep;
+        }
+        forces.applyForces(particles);
+        storeAcceleration(particles);
+        for (int i = 0; i < size; i++) {
+            vx[i] += myAccelerationX[i] * half;
+            vy[i] += myAccelerationY[i] * half;
+        }
+    }
+
+    @Override
+    double[][] saveState (ParticleStore particles) {
+        if (particles != myParticles || particles.getVersion() != myVersion) {
+            return super.saveState(particles);
+        }
+        return new double[][] { Arrays.copyOf(myAccelerationX, particles.size()),
+                                Arrays.copyOf(myAccelerationY, particles.size()) };
+    }
+
+    @Override
+    void restoreState (ParticleStore particles, double[][] state) {
+        if (state.length == 0) { return; }
+        myAccelerationX = state[0];
+        myAccelerationY = state[1];
+        myParticles = particles;
+        myVersion = particles.getVersion();
+    }
+
+    private void storeAcceleration (ParticleStore particles) {
+        double[] fx = particles.getForceX();
+        double[] fy = particles.getForceY();
+        double[] inverseMass = particles.getInverseMass();
+        for (int i = 0; i < particles.size(); i++) {
+            myAccelerationX[i] = fx[i] * inverseMass[i];
+            myAccelerationY[i] = fy[i] * inverseMass[i];
+        }
+    }
+}
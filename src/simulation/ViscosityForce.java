@@ -1,8 +1,6 @@
 package simulation;
 
 import java.awt.event.KeyEvent;
-import java.util.List;
-import util.Vector;
 
 
 /**
@@ -30,16 +28,24 @@ public class ViscosityForce extends Environment {
      * a scaled opposing vector to the acceleration of the mass
      * Does not apply force if isForceOn is off
      */
-    public void applyForce (List<Mass> masses) {
+    public void applyForce (ParticleStore particles) {
         if (!isForceOn) { return; }
-        for (Mass m : masses) {
-            Vector viscosity = new Vector(m.getVelocity());
-            viscosity.negate();
-            viscosity.scale(myViscosity);
-            m.applyForce(viscosity);
+        for (int i = 0; i < particles.size(); i++) {
+            particles.applyForce(i, -myViscosity * particles.getVelocityX(i),
+                                 -myViscosity * particles.getVelocityY(i));
         }
     }
 
+    @Override
+    protected int getKind () {
+        return VISCOSITY;
+    }
+
+    @Override
+    protected double[] getSettings () {
+        return new double[] { myViscosity };
+    }
+
     @Override
     public final Environment toggleForce (final int key) {
         if (!(key == KeyEvent.VK_V)) { return null; }
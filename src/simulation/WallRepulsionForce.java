@@ -1,7 +1,6 @@
 package simulation;
 
 import java.awt.event.KeyEvent;
-import java.util.List;
 import util.Vector;
 
 
@@ -25,6 +24,9 @@ public class WallRepulsionForce extends Environment {
     public static final double LEFT_WALL_ID = 4;
 
     private double myForceDirection;
+    // unit vector in the direction of the force
+    private double myDirectionX;
+    private double myDirectionY;
     private int myID;
     private double myMagnitude;
     private double myExponentialIndex;
@@ -41,6 +43,9 @@ public class WallRepulsionForce extends Environment {
                                double magnitude, double exponent) {
         myID = ID;
         myForceDirection = direction;
+        Vector unitDirection = new Vector(myForceDirection, 1);
+        myDirectionX = unitDirection.getXChange();
+        myDirectionY = unitDirection.getYChange();
         myMagnitude = magnitude;
         myExponentialIndex = exponent;
         myName = "Wall " + myID;
@@ -70,10 +75,11 @@ public class WallRepulsionForce extends Environment {
      * Calculates and applies wall repulsion force to each mass
      * Does not apply force if isForceOn is off
      */
-    public void applyForce (List<Mass> masses) {
+    public void applyForce (ParticleStore particles) {
         if (!isForceOn) { return; }
-        for (Mass m : masses) {
-            m.applyForce(calculateWallRepulsion(m));
+        for (int i = 0; i < particles.size(); i++) {
+            double force = calculateWallRepulsion(particles, i);
+            particles.applyForce(i, myDirectionX * force, myDirectionY * force);
         }
     }
 
@@ -85,24 +91,33 @@ public class WallRepulsionForce extends Environment {
     }
 
     /**
-     * Calculates the force done by a wall depending on the wall ID.
+     * Calculates the magnitude of the force done by a wall depending on the wall ID.
      */
-    private Vector calculateWallRepulsion (Mass m) {
+    private double calculateWallRepulsion (ParticleStore particles, int index) {
         double distance;
         if (myID == UPPER_WALL_ID) {
-            distance = m.getY();
+            distance = particles.getY(index);
         }
         else if (myID == RIGHT_WALL_ID) {
-            distance = myBounds.getWidth() - m.getX();
+            distance = myBounds.getWidth() - particles.getX(index);
         }
         else if (myID == BOTTOM_WALL_ID) {
-            distance = myBounds.getHeight() - m.getY();
+            distance = myBounds.getHeight() - particles.getY(index);
         }
         else {
-            distance = m.getX();
+            distance = particles.getX(index);
         }
-        return new Vector(myForceDirection, myMagnitude
-                                            / (Math.pow(distance, myExponentialIndex)));
+        return myMagnitude / (Math.pow(distance, myExponentialIndex));
+    }
+
+    @Override
+    protected int getKind () {
+        return WALL;
+    }
+
+    @Override
+    protected double[] getSettings () {
+        return new double[] { myID, myForceDirection, myMagnitude, myExponentialIndex };
     }
 
     @Override
@@ -0,0 +1,110 @@
+package util;
+
+/**
+ * Map from int keys to int values that stores both in plain arrays, with no
+ * boxing and no object per entry. Uses open addressing with linear probing.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class IntHashMap {
+    // returned by get for keys that are not in the map
+    public static final int MISSING = -1;
+    private static final int INITIAL_CAPACITY = 16;
+    // table is grown when more than this fraction full
+    private static final double LOAD_FACTOR = 0.5;
+
+    private int[] myKeys;
+    private int[] myValues;
+    private boolean[] isUsed;
+    private int mySize;
+
+    /**
+     * Create an empty map.
+     */
+    public IntHashMap () {
+        clear();
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear () {
+        myKeys = new int[INITIAL_CAPACITY];
+        myValues = new int[INITIAL_CAPACITY];
+        isUsed = new boolean[INITIAL_CAPACITY];
+        mySize = 0;
+    }
+
+    /**
+     * @return number of entries
+     */
+    public int size () {
+        return mySize;
+    }
+
+    /**
+     * Returns the value for the given key, or MISSING if there is none.
+     */
+    public int get (int key) {
+        int slot = find(key);
+        if (!isUsed[slot]) { return MISSING; }
+        return myValues[slot];
+    }
+
+    /**
+     * Returns true if the given key has a value.
+     */
+    public boolean containsKey (int key) {
+        return isUsed[find(key)];
+    }
+
+    /**
+     * Sets the value for the given key, replacing any value it had.
+     */
+    public void put (int key, int value) {
+        int slot = find(key);
+        if (!isUsed[slot]) {
+            if (mySize + 1 > myKeys.length * LOAD_FACTOR) {
+                grow();
+                slot = find(key);
+            }
+            isUsed[slot] = true;
+            myKeys[slot] = key;
+            mySize++;
+        }
+        myValues[slot] = value;
+    }
+
+    // slot holding the given key, or the empty slot where it would go
+    private int find (int key) {
+        int mask = myKeys.length - 1;
+        int slot = mix(key) & mask;
+        while (isUsed[slot] && myKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow () {
+        int[] keys = myKeys;
+        int[] values = myValues;
+        boolean[] used = isUsed;
+        myKeys = new int[keys.length * 2];
+        myValues = new int[keys.length * 2];
+        isUsed = new boolean[keys.length * 2];
+        for (int k = 0; k < keys.length; k++) {
+            if (used[k]) {
+                int slot = find(keys[k]);
+                isUsed[slot] = true;
+                myKeys[slot] = keys[k];
+                myValues[slot] = values[k];
+            }
+        }
+    }
+
+    // spread consecutive keys across the table
+    private static int mix (int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
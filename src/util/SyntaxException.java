@@ -0,0 +1,40 @@
+package util;
+
+/**
+ * Reports a mistake in a data file, and the line it is on.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class SyntaxException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private String myFileName;
+    private int myLineNumber;
+    private String myProblem;
+
+    /**
+     * Create an exception for the given problem on the given line of the
+     * given file.
+     */
+    public SyntaxException (String fileName, int lineNumber, String problem) {
+        super(fileName + " line " + lineNumber + ": " + problem);
+        myFileName = fileName;
+        myLineNumber = lineNumber;
+        myProblem = problem;
+    }
+
+    /**
+     * @return number of the line the problem is on, starting from 1
+     */
+    public int getLineNumber () {
+        return myLineNumber;
+    }
+
+    /**
+     * Returns the same problem on a line the given number of lines further
+     * down, for problems found while reading part of a file.
+     */
+    public SyntaxException moveDown (int lines) {
+        return new SyntaxException(myFileName, myLineNumber + lines, myProblem);
+    }
+}
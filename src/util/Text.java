@@ -3,6 +3,7 @@ package util;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
 import java.awt.font.TextLayout;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
@@ -12,6 +13,9 @@ import java.awt.geom.Rectangle2D;
  * This class represents text that appears on the screen and
  * adds some utility functions to the Image class.
  * 
+ * The laid out text is kept until the text, the font or the way the screen
+ * renders fonts changes, so painting the same text again is cheap.
+ * 
  * @author Robert C. Duvall
  */
 public class Text {
@@ -22,6 +26,10 @@ public class Text {
     // underlying implementation
     private String myText;
     private Font myFont;
+    // cached layout, and what it was made for
+    private TextLayout myLayout;
+    private FontRenderContext myLayoutContext;
+    private Rectangle2D myLayoutBounds;
 
 
     /**
@@ -44,14 +52,18 @@ public class Text {
      * Change text of this shape
      */
     public void setText (String s) {
+        if (s.equals(myText)) { return; }
         myText = s;
+        myLayout = null;
     }
 
     /**
      * Change the font of this shape's text.
      */
     public void setFont (String type, int size) {
+        if (myFont.getName().equals(type) && myFont.getSize() == size) { return; }
         myFont = new Font(type, Font.BOLD, size);
+        myLayout = null;
     }
 
     /**
@@ -63,14 +75,25 @@ public class Text {
         pen.setColor(color);
         pen.setFont(myFont);
         // get text size
-        TextLayout layout = new TextLayout(myText, myFont, pen.getFontRenderContext());
-        float height = layout.getAscent() + layout.getDescent();
-        Rectangle2D bounds = layout.getBounds();
-        bounds.setRect(-bounds.getWidth() / 2, -height / 2, bounds.getWidth(), bounds.getHeight());
+        TextLayout layout = getLayout(pen.getFontRenderContext());
+        Rectangle2D bounds = myLayoutBounds;
         // draw text
         layout.draw((Graphics2D) pen, (float) (center.getX() - bounds.getWidth() / 2),
                     (float) (center.getY() + bounds.getHeight() / 2 - layout.getDescent()));
         // unset attributes
         pen.setColor(oldColor);
     }
+
+    // lay out the text only if it, the font or the render context changed
+    private TextLayout getLayout (FontRenderContext context) {
+        if (myLayout == null || !context.equals(myLayoutContext)) {
+            myLayout = new TextLayout(myText, myFont, context);
+            myLayoutContext = context;
+            float height = myLayout.getAscent() + myLayout.getDescent();
+            myLayoutBounds = myLayout.getBounds();
+            myLayoutBounds.setRect(-myLayoutBounds.getWidth() / 2, -height / 2,
+                                   myLayoutBounds.getWidth(), myLayoutBounds.getHeight());
+        }
+        return myLayout;
+    }
 }
@@ -0,0 +1,330 @@
+package util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+
+/**
+ * Reads whitespace separated words and numbers from a text file one line at a
+ * time, straight from a large byte buffer.
+ *
+ * Numbers are parsed from the bytes themselves, so no String or Scanner is
+ * created per line or per word. Problems are reported as a SyntaxException
+ * naming the file and line number. A reader may cover just part of a file,
+ * in which case lines are numbered from the start of that part.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class TokenReader implements Closeable {
+    // bytes read from the file at a time
+    public static final int BUFFER_SIZE = 1 << 20;
+    // decimals with at most this many digits are parsed without rounding error
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private String myName;
+    private ReadableByteChannel myChannel;
+    private byte[] myBytes;
+    private ByteBuffer myBuffer;
+    // bytes of the buffer holding data read from the channel
+    private int myLimit;
+    private boolean isEndOfInput;
+    // bytes of the channel still to be read
+    private long myBytesLeft;
+    // current line is myBytes[myPosition, myLineEnd)
+    private int myPosition;
+    private int myLineEnd;
+    private int myNextLine;
+    private int myLineNumber;
+
+    /**
+     * Create a reader over the given file.
+     */
+    public TokenReader (File file) throws IOException {
+        this(file.getName(), new FileInputStream(file).getChannel());
+    }
+
+    /**
+     * Create a reader over the bytes of the given file from start up to end,
+     * which should each be at the start of a line or the end of the file.
+     */
+    public TokenReader (File file, long start, long end) throws IOException {
+        this(file.getName(), new FileInputStream(file).getChannel().position(start));
+        myBytesLeft = end - start;
+    }
+
+    /**
+     * Create a reader over the given channel, named in error messages.
+     */
+    public TokenReader (String name, ReadableByteChannel channel) {
+        myName = name;
+        myChannel = channel;
+        myBytes = new byte[BUFFER_SIZE];
+        myBuffer = ByteBuffer.wrap(myBytes);
+        myBytesLeft = Long.MAX_VALUE;
+    }
+
+    /**
+     * Moves to the next line, returning false at the end of the file.
+     */
+    public boolean nextLine () throws IOException {
+        int start = myNextLine;
+        int end = indexOfNewline(start);
+        while (end < 0 && !isEndOfInput) {
+            start = fill(start);
+            end = indexOfNewline(start);
+        }
+        if (end < 0) {
+            if (start == myLimit) { return false; }
+            end = myLimit;
+        }
+        myPosition = start;
+        myLineEnd = end;
+        myNextLine = Math.min(end + 1, myLimit);
+        myLineNumber++;
+        return true;
+    }
+
+    /**
+     * @return number of the current line, starting from 1
+     */
+    public int getLineNumber () {
+        return myLineNumber;
+    }
+
+    /**
+     * Returns true if the current line has another word.
+     */
+    public boolean hasNext () {
+        skipSpaces();
+        return myPosition < myLineEnd;
+    }
+
+    /**
+     * Returns true if the next word of the current line starts like a number.
+     */
+    public boolean hasNextNumber () {
+        if (!hasNext()) { return false; }
+        byte b = myBytes[myPosition];
+        if ((b == '-' || b == '+' || b == '.') && myPosition + 1 < myLineEnd) {
+            b = myBytes[myPosition + 1];
+            if (b == '.' && myPosition + 2 < myLineEnd) {
+                b = myBytes[myPosition + 2];
+            }
+        }
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * If the next word of the current line is the given word, skips past it
+     * and returns true; otherwise leaves the line as it was.
+     */
+    public boolean nextIs (String word) {
+        if (!hasNext()) { return false; }
+        int end = wordEnd();
+        if (end - myPosition != word.length()) { return false; }
+        for (int k = 0; k < word.length(); k++) {
+            if (myBytes[myPosition + k] != word.charAt(k)) { return false; }
+        }
+        myPosition = end;
+        return true;
+    }
+
+    /**
+     * Returns the next word of the current line.
+     */
+    public String next () {
+        if (!hasNext()) { throw error("expected another value"); }
+        int end = wordEnd();
+        String result = new String(myBytes, myPosition, end - myPosition);
+        myPosition = end;
+        return result;
+    }
+
+    /**
+     * Returns the next word of the current line as an integer.
+     */
+    public int nextInt () {
+        if (!hasNext()) { throw error("expected an integer"); }
+        int end = wordEnd();
+        int k = myPosition;
+        boolean isNegative = myBytes[k] == '-';
+        if (isNegative || myBytes[k] == '+') {
+            k++;
+        }
+        if (k == end) { throw error("expected an integer"); }
+        long result = 0;
+        for (; k < end; k++) {
+            int digit = myBytes[k] - '0';
+            if (digit < 0 || digit > 9 || result > Integer.MAX_VALUE + 1L) {
+                throw error("expected an integer");
+            }
+            result = result * 10 + digit;
+        }
+        if (isNegative) {
+            result = -result;
+        }
+        if (result < Integer.MIN_VALUE || result > Integer.MAX_VALUE) {
+            throw error("integer out of range");
+        }
+        myPosition = end;
+        return (int) result;
+    }
+
+    /**
+     * Returns the next word of the current line as a number, giving exactly
+     * the value Double.parseDouble would.
+     */
+    public double nextDouble () {
+        if (!hasNext()) { throw error("expected a number"); }
+        int end = wordEnd();
+        int k = myPosition;
+        boolean isNegative = myBytes[k] == '-';
+        if (isNegative || myBytes[k] == '+') {
+            k++;
+        }
+        long digits = 0;
+        int digitCount = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        for (; k < end && isDigit(myBytes[k]); k++) {
+            hasDigits = true;
+            if (digits != 0 || myBytes[k] != '0') {
+                digits = digits * 10 + (myBytes[k] - '0');
+                digitCount++;
+            }
+        }
+        if (k < end && myBytes[k] == '.') {
+            for (k++; k < end && isDigit(myBytes[k]); k++) {
+                hasDigits = true;
+                if (digits != 0 || myBytes[k] != '0') {
+                    digits = digits * 10 + (myBytes[k] - '0');
+                    digitCount++;
+                }
+                exponent--;
+            }
+        }
+        if (hasDigits && k < end && (myBytes[k] == 'e' || myBytes[k] == 'E')) {
+            k++;
+            boolean isNegativeExponent = k < end && myBytes[k] == '-';
+            if (k < end && (isNegativeExponent || myBytes[k] == '+')) {
+                k++;
+            }
+            int power = 0;
+            boolean hasPower = false;
+            for (; k < end && isDigit(myBytes[k]) && power < 10000; k++) {
+                hasPower = true;
+                power = power * 10 + (myBytes[k] - '0');
+            }
+            if (!hasPower) { return slowDouble(end); }
+            exponent += isNegativeExponent ? -power : power;
+        }
+        if (!hasDigits || k != end) { return slowDouble(end); }
+        if (digitCount > MAX_EXACT_DIGITS || Math.abs(exponent) >= POWERS_OF_TEN.length) {
+            return slowDouble(end);
+        }
+        // both digits and the power of ten are exact doubles, so one
+        // correctly rounded multiply or divide gives the correct result
+        double result = digits;
+        if (exponent < 0) {
+            result /= POWERS_OF_TEN[-exponent];
+        }
+        else {
+            result *= POWERS_OF_TEN[exponent];
+        }
+        myPosition = end;
+        return isNegative ? -result : result;
+    }
+
+    /**
+     * Returns an exception describing a problem at the current line.
+     */
+    public SyntaxException error (String message) {
+        return new SyntaxException(myName, myLineNumber, message);
+    }
+
+    /**
+     * Closes the file.
+     */
+    @Override
+    public void close () throws IOException {
+        myChannel.close();
+    }
+
+    // numbers too long or too large for the fast path, and anything odd
+    private double slowDouble (int end) {
+        String word = new String(myBytes, myPosition, end - myPosition);
+        try {
+            double result = Double.parseDouble(word);
+            myPosition = end;
+            return result;
+        }
+        catch (NumberFormatException e) {
+            throw error("expected a number but found " + word);
+        }
+    }
+
+    // moves the unread bytes from start to the front of the buffer and reads more
+    private int fill (int start) throws IOException {
+        int remaining = myLimit - start;
+        if (start == 0 && myLimit == myBytes.length) {
+            // a single line longer than the buffer
+            myBytes = Arrays.copyOf(myBytes, myBytes.length * 2);
+            myBuffer = ByteBuffer.wrap(myBytes);
+        }
+        else {
+            System.arraycopy(myBytes, start, myBytes, 0, remaining);
+        }
+        myBuffer.clear();
+        myBuffer.position(remaining);
+        myBuffer.limit((int) Math.min(myBytes.length, remaining + myBytesLeft));
+        int read = 0;
+        while (read == 0 && myBuffer.hasRemaining()) {
+            read = myChannel.read(myBuffer);
+        }
+        if (read <= 0) {
+            isEndOfInput = true;
+        }
+        else {
+            myBytesLeft -= read;
+        }
+        myLimit = myBuffer.position();
+        return 0;
+    }
+
+    private int indexOfNewline (int start) {
+        for (int k = start; k < myLimit; k++) {
+            if (myBytes[k] == '\n') { return k; }
+        }
+        return -1;
+    }
+
+    private void skipSpaces () {
+        while (myPosition < myLineEnd && isSpace(myBytes[myPosition])) {
+            myPosition++;
+        }
+    }
+
+    private int wordEnd () {
+        int end = myPosition;
+        while (end < myLineEnd && !isSpace(myBytes[end])) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isSpace (byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    private static boolean isDigit (byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
@@ -0,0 +1,68 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Hands the latest of a stream of values from one writer thread to one reader
+ * thread without locks, using three buffers that are reused forever.
+ *
+ * The writer fills the back buffer and publishes it; the reader takes the most
+ * recently published buffer as its front buffer. The third buffer sits in
+ * between, so neither thread ever waits for the other and neither ever sees a
+ * buffer the other is using. Values published faster than they are read are
+ * simply skipped.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class TripleBuffer<T> {
+    // the middle index is kept with a flag saying it holds a value not yet read
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private Object[] myBuffers;
+    private AtomicInteger myMiddle;
+    // owned by the writer
+    private int myBack;
+    // owned by the reader
+    private int myFront;
+
+    /**
+     * Create a triple buffer over the given three buffers. The reader sees
+     * the first one until something is published.
+     */
+    public TripleBuffer (T front, T middle, T back) {
+        myBuffers = new Object[] { front, middle, back };
+        myFront = 0;
+        myMiddle = new AtomicInteger(1);
+        myBack = 2;
+    }
+
+    /**
+     * Returns the buffer the writer may fill. Only the writer thread may call this.
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack () {
+        return (T) myBuffers[myBack];
+    }
+
+    /**
+     * Makes the back buffer the latest value and gives the writer another
+     * buffer to fill. Only the writer thread may call this.
+     */
+    public void publish () {
+        myBack = myMiddle.getAndSet(myBack | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Returns the latest published buffer, which stays untouched by the
+     * writer until the next call. Only the reader thread may call this.
+     */
+    @SuppressWarnings("unchecked")
+    public T getFront () {
+        if ((myMiddle.get() & FRESH) != 0) {
+            myFront = myMiddle.getAndSet(myFront) & INDEX_MASK;
+        }
+        return (T) myBuffers[myFront];
+    }
+}
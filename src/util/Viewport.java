@@ -0,0 +1,99 @@
+package util;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+
+/**
+ * Camera that maps the coordinates masses live in to pixels on the screen,
+ * so a view can zoom in and out and pan across a large assembly.
+ *
+ * A point is drawn at (point - origin) * scale, where the origin is the point
+ * shown at the top left corner of the screen.
+ *
+ * @author Henrique Moraes, Danny Goodman, Thomas Varner
+ */
+public class Viewport {
+    // how far in or out the view can zoom
+    public static final double MIN_SCALE = 1.0 / 1024;
+    public static final double MAX_SCALE = 64;
+
+    private double myScale;
+    private double myLeft;
+    private double myTop;
+
+    /**
+     * Create a viewport that shows the model one pixel per unit, with no panning.
+     */
+    public Viewport () {
+        reset();
+    }
+
+    /**
+     * Goes back to showing the model one pixel per unit, with no panning.
+     */
+    public void reset () {
+        myScale = 1;
+        myLeft = 0;
+        myTop = 0;
+    }
+
+    /**
+     * @return pixels per unit of model distance
+     */
+    public double getScale () {
+        return myScale;
+    }
+
+    /**
+     * Returns the screen x coordinate at which the given model x coordinate is drawn.
+     */
+    public double toScreenX (double x) {
+        return (x - myLeft) * myScale;
+    }
+
+    /**
+     * Returns the screen y coordinate at which the given model y coordinate is drawn.
+     */
+    public double toScreenY (double y) {
+        return (y - myTop) * myScale;
+    }
+
+    /**
+     * Returns the model point drawn at the given point on the screen.
+     */
+    public Point2D toModel (Point2D screenPoint) {
+        return new Point2D.Double(myLeft + screenPoint.getX() / myScale,
+                                  myTop + screenPoint.getY() / myScale);
+    }
+
+    /**
+     * Returns the part of the model visible on a screen of the given size.
+     */
+    public Rectangle2D getVisibleRegion (Dimension screen) {
+        return new Rectangle2D.Double(myLeft, myTop,
+                                      screen.width / myScale, screen.height / myScale);
+    }
+
+    /**
+     * Zooms by the given factor, keeping the model point under the given
+     * screen point where it is.
+     *
+     * @param factor : more than one zooms in, less than one zooms out
+     */
+    public void zoom (double factor, Point2D screenPoint) {
+        Point2D fixed = toModel(screenPoint);
+        myScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, myScale * factor));
+        myLeft = fixed.getX() - screenPoint.getX() / myScale;
+        myTop = fixed.getY() - screenPoint.getY() / myScale;
+    }
+
+    /**
+     * Moves the view so the model follows the mouse by the given number of pixels.
+     */
+    public void pan (double dx, double dy) {
+        myLeft -= dx / myScale;
+        myTop -= dy / myScale;
+    }
+}
@@ -12,15 +12,33 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
 import java.util.TreeSet;
 import javax.swing.JComponent;
 import javax.swing.JFileChooser;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
+import simulation.Assembly;
+import simulation.Checkpoint;
+import simulation.CheckpointWriter;
+import simulation.Command;
+import simulation.Control;
 import simulation.Factory;
 import simulation.Model;
+import simulation.ModelRenderer;
+import simulation.PhysicsThread;
+import simulation.RenderSnapshot;
+import simulation.Replay;
+import simulation.TrajectoryReader;
+import simulation.TrajectoryRecorder;
+import util.Viewport;
 
 
 /**
@@ -31,13 +49,16 @@ import simulation.Model;
  * <LI>keyboard input via the KeyListener
  * </UL>
  * 
+ * The model runs on a PhysicsThread of its own. The canvas only ever draws
+ * the latest snapshot of it, and sends it input as Commands.
+ * 
  * @author Henrique Moraes, Danny Goodman, Thomas Varner
  */
 public class Canvas extends JComponent {
     // default serialization ID
     private static final long serialVersionUID = 1L;
-    // animate 25 times per second if possible
-    private static final int FRAMES_PER_SECOND = 25;
+    // draw 60 times per second if possible
+    private static final int FRAMES_PER_SECOND = 60;
     // better way to think about timed events (in milliseconds)
     private static final int ONE_SECOND = 1000;
     private static final int DEFAULT_DELAY = ONE_SECOND / FRAMES_PER_SECOND;
@@ -45,13 +66,24 @@ public class Canvas extends JComponent {
     private static final JFileChooser INPUT_CHOOSER =
             new JFileChooser(System.getProperties().getProperty("user.dir"));
     // input state
+    public static final int NO_KEY_PRESSED = -1;
     private static final Point NO_MOUSE_PRESSED = null;
-    private static final int NO_KEY_PRESSED = -1;
+    // how much one notch of the mouse wheel zooms
+    private static final double ZOOM_PER_NOTCH = 1.25;
+    // physics steps between recorded frames
+    private static final int RECORDING_INTERVAL = 2;
+    private static final double NANOS_PER_SECOND = 1e9;
 
-    // drives the animation
+    // drives the drawing
     private Timer myTimer;
-    // game to be animated
-    private Model mySimulation;
+    // game to be animated, run on its own thread
+    private PhysicsThread myPhysics;
+    private ModelRenderer myRenderer;
+    private Control myControl;
+    private Dimension myLastSize;
+    // what part of the model is shown, changed with the mouse wheel and right button
+    private Viewport myViewport;
+    private Point myLastPanPosition;
     // input state
     private int myLastKeyPressed;
     private Point myLastMousePosition;
@@ -59,6 +91,13 @@ public class Canvas extends JComponent {
     private Set<Integer> myKeys;
     // new elements to be created
     private boolean myEnvironmentLoaded = false;
+    // writes checkpoints without holding up the model
+    private CheckpointWriter myCheckpoints = new CheckpointWriter();
+    private boolean isRecording;
+    // recording played back instead of the model, if any
+    private Replay myReplay;
+    private RenderSnapshot myReplaySnapshot = new RenderSnapshot();
+    private long myLastReplayTime;
 
     /**
      * Create a panel so that it knows its size
@@ -89,8 +128,11 @@ public class Canvas extends JComponent {
         pen.setColor(Color.WHITE);
         pen.fillRect(0, 0, getSize().width, getSize().height);
         // first time needs to be special cased :(
-        if (mySimulation != null) {
-            mySimulation.paint((Graphics2D) pen);
+        if (myPhysics != null) {
+            RenderSnapshot snapshot = isReplaying() ? myReplaySnapshot :
+                                                      myPhysics.getLatestSnapshot();
+            myRenderer.paint((Graphics2D) pen, snapshot, myViewport, getSize());
+            myControl.paint((Graphics2D) pen, snapshot);
         }
     }
 
@@ -122,6 +164,27 @@ public class Canvas extends JComponent {
         return myLastMousePosition;
     }
 
+    /**
+     * Returns the viewport through which the model is shown.
+     */
+    public Viewport getViewport () {
+        return myViewport;
+    }
+
+    /**
+     * Returns true if a recording is being played back instead of the model.
+     */
+    public boolean isReplaying () {
+        return myReplay != null;
+    }
+
+    /**
+     * Returns the recording being played back, or null.
+     */
+    public Replay getReplay () {
+        return myReplay;
+    }
+
     /**
      * Start the animation.
      */
@@ -134,8 +197,12 @@ public class Canvas extends JComponent {
                 }
             });
         // start animation
-        mySimulation = new Model(this);
+        myLastSize = getSize();
+        myPhysics = new PhysicsThread(new Model(myLastSize));
+        myRenderer = new ModelRenderer();
+        myControl = new Control(this);
         loadModel();
+        myPhysics.start();
         myTimer.start();
     }
 
@@ -144,22 +211,47 @@ public class Canvas extends JComponent {
      */
     public void stop () {
         myTimer.stop();
+        myPhysics.shutdown();
     }
 
     /**
-     * Take one step in the animation.
+     * Take one step in the animation: respond to input and draw the latest
+     * state of the model. The model moves on by itself.
      */
     public void step () {
-        mySimulation.update((double) FRAMES_PER_SECOND / ONE_SECOND);
+        if (!getSize().equals(myLastSize)) {
+            myLastSize = getSize();
+            final Dimension bounds = myLastSize;
+            post(new Command() {
+                public void execute (Model model) {
+                    model.setBounds(bounds);
+                }
+            });
+        }
+        myControl.update();
+        if (isReplaying()) {
+            long now = System.nanoTime();
+            myReplay.update((now - myLastReplayTime) / NANOS_PER_SECOND);
+            myLastReplayTime = now;
+            myReplay.capture(myReplaySnapshot);
+        }
         // indirectly causes paint to be called
         repaint();
     }
 
+    /**
+     * Sends the given command to the model, to be carried out before its next step.
+     */
+    public void post (Command command) {
+        myPhysics.post(command);
+    }
+
     /**
      * Create listeners that will update state based on user input.
      */
     private void setInputListeners () {
         // initialize input state
+        myViewport = new Viewport();
         myLastKeyPressed = NO_KEY_PRESSED;
         myKeys = new TreeSet<Integer>();
         addKeyListener(new KeyAdapter() {
@@ -180,47 +272,274 @@ public class Canvas extends JComponent {
         addMouseMotionListener(new MouseMotionAdapter() {
             @Override
             public void mouseDragged (MouseEvent e) {
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    pan(e.getPoint());
+                    return;
+                }
+                if (isReplaying()) {
+                    scrub(e.getPoint());
+                    return;
+                }
                 myLastMousePosition = e.getPoint();
+                final Point2D position = myViewport.toModel(e.getPoint());
+                post(new Command() {
+                    public void execute (Model model) {
+                        model.drag(position);
+                    }
+                });
             }
         });
         addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed (MouseEvent e) {
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    myLastPanPosition = e.getPoint();
+                    return;
+                }
+                if (isReplaying()) {
+                    scrub(e.getPoint());
+                    return;
+                }
                 myLastMousePosition = e.getPoint();
                 myMousePressed = true;
+                final Point2D position = myViewport.toModel(e.getPoint());
+                post(new Command() {
+                    public void execute (Model model) {
+                        model.startDrag(position);
+                    }
+                });
             }
 
             @Override
             public void mouseReleased (MouseEvent e) {
+                if (SwingUtilities.isRightMouseButton(e) || isReplaying()) { return; }
                 myLastMousePosition = e.getPoint();
                 myMousePressed = false;
+                post(new Command() {
+                    public void execute (Model model) {
+                        model.endDrag();
+                    }
+                });
+            }
+        });
+        addMouseWheelListener(new MouseWheelListener() {
+            @Override
+            public void mouseWheelMoved (MouseWheelEvent e) {
+                myViewport.zoom(Math.pow(ZOOM_PER_NOTCH, -e.getPreciseWheelRotation()),
+                                e.getPoint());
             }
         });
     }
 
+    // move the view with the mouse while the right button is held
+    private void pan (Point position) {
+        if (myLastPanPosition != null) {
+            myViewport.pan(position.x - myLastPanPosition.x, position.y - myLastPanPosition.y);
+        }
+        myLastPanPosition = position;
+    }
+
+    // move playback to the point across the canvas the mouse is at
+    private void scrub (Point position) {
+        myReplay.seek((double) position.x / getWidth());
+    }
+
     /** 
      * load Model from file chosen by user
      */
     public void loadModel () {
-        Factory factory = new Factory();
+        final Factory factory = new Factory();
         int response = INPUT_CHOOSER.showOpenDialog(null);
         if (response == JFileChooser.APPROVE_OPTION) {
-            factory.loadModel(mySimulation, INPUT_CHOOSER.getSelectedFile());
+            final File modelFile = INPUT_CHOOSER.getSelectedFile();
+            post(new Command() {
+                public void execute (Model model) {
+                    factory.loadModel(model, modelFile);
+                }
+            });
         }
         myLastKeyPressed = NO_KEY_PRESSED;
         if (myEnvironmentLoaded) { return; }
         
         response = INPUT_CHOOSER.showOpenDialog(null);
         if (response == JFileChooser.APPROVE_OPTION) {
-            factory.loadEnvironment(mySimulation, INPUT_CHOOSER.getSelectedFile());
+            final File environmentFile = INPUT_CHOOSER.getSelectedFile();
+            post(new Command() {
+                public void execute (Model model) {
+                    factory.loadEnvironment(model, environmentFile);
+                }
+            });
             myEnvironmentLoaded = true;
         }
     }
 
+    /**
+     * save the state of the Model to a file chosen by user; it is copied
+     * between steps and written in the background
+     */
+    public void saveCheckpoint () {
+        int response = INPUT_CHOOSER.showSaveDialog(null);
+        myLastKeyPressed = NO_KEY_PRESSED;
+        if (response != JFileChooser.APPROVE_OPTION) { return; }
+        final File checkpointFile = INPUT_CHOOSER.getSelectedFile();
+        post(new Command() {
+            public void execute (Model model) {
+                myCheckpoints.write(model.saveCheckpoint(), checkpointFile);
+            }
+        });
+    }
+
+    /**
+     * replace the Model, environment included, by a checkpoint chosen by user
+     */
+    public void restoreCheckpoint () {
+        int response = INPUT_CHOOSER.showOpenDialog(null);
+        myLastKeyPressed = NO_KEY_PRESSED;
+        if (response != JFileChooser.APPROVE_OPTION) { return; }
+        final File checkpointFile = INPUT_CHOOSER.getSelectedFile();
+        post(new Command() {
+            public void execute (Model model) {
+                try {
+                    model.restore(Checkpoint.read(checkpointFile));
+                }
+                catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        myEnvironmentLoaded = true;
+        // the model takes the size of this view again
+        myLastSize = null;
+    }
+
+    /**
+     * start recording mass positions to a file chosen by user, or stop
+     * recording; frames are dropped rather than slowing the model down.
+     * Whether recording is on is shown once the model's thread has opened
+     * or closed the file.
+     */
+    public void toggleRecording () {
+        myLastKeyPressed = NO_KEY_PRESSED;
+        if (isRecording) {
+            post(new Command() {
+                public void execute (Model model) {
+                    closeRecorder(model);
+                    showRecording(false);
+                }
+            });
+            return;
+        }
+        int response = INPUT_CHOOSER.showSaveDialog(null);
+        myLastKeyPressed = NO_KEY_PRESSED;
+        if (response != JFileChooser.APPROVE_OPTION) { return; }
+        final File trajectoryFile = INPUT_CHOOSER.getSelectedFile();
+        post(new Command() {
+            public void execute (Model model) {
+                closeRecorder(model);
+                try {
+                    model.setRecorder(new TrajectoryRecorder(trajectoryFile, RECORDING_INTERVAL,
+                                                             TrajectoryRecorder.Backpressure.DROP));
+                    showRecording(true);
+                }
+                catch (IOException e) {
+                    e.printStackTrace();
+                    showRecording(false);
+                }
+            }
+        });
+    }
+
+    // stops the model's recorder, if any; called on the model's thread
+    private void closeRecorder (Model model) {
+        TrajectoryRecorder recorder = model.getRecorder();
+        if (recorder == null) { return; }
+        model.setRecorder(null);
+        try {
+            recorder.close();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // notes whether recording is on back on the event thread, and shows it
+    private void showRecording (final boolean recording) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run () {
+                isRecording = recording;
+                myControl.showStatus("Recording", recording ? "On" : "Off");
+            }
+        });
+    }
+
+    /**
+     * play back a trajectory chosen by user instead of running the Model,
+     * drawing the springs of an assembly file chosen next, if any; or go
+     * back to the Model if already playing one back
+     *
+     * @return true if now playing back a trajectory
+     */
+    public boolean toggleReplay () {
+        myLastKeyPressed = NO_KEY_PRESSED;
+        if (isReplaying()) {
+            try {
+                myReplay.close();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+            }
+            myReplay = null;
+            myPhysics.setPaused(false);
+            return false;
+        }
+        if (INPUT_CHOOSER.showOpenDialog(null) != JFileChooser.APPROVE_OPTION) { return false; }
+        File trajectoryFile = INPUT_CHOOSER.getSelectedFile();
+        TrajectoryReader reader = null;
+        try {
+            reader = new TrajectoryReader(trajectoryFile);
+            Assembly assembly = null;
+            if (INPUT_CHOOSER.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
+                assembly = new Factory().readAssembly(INPUT_CHOOSER.getSelectedFile());
+            }
+            myReplay = new Replay(reader, assembly);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+        catch (IllegalArgumentException e) {
+            // not a trajectory or assembly this can read
+            e.printStackTrace();
+        }
+        myLastKeyPressed = NO_KEY_PRESSED;
+        if (myReplay == null) {
+            closeQuietly(reader);
+            return false;
+        }
+        myPhysics.setPaused(true);
+        myLastReplayTime = System.nanoTime();
+        myReplay.capture(myReplaySnapshot);
+        return true;
+    }
+
+    // a trajectory that could not be played back
+    private static void closeQuietly (TrajectoryReader reader) {
+        if (reader == null) { return; }
+        try {
+            reader.close();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * clear the Model.
      */
     public void clear () {
-        mySimulation.clear();
+        post(new Command() {
+            public void execute (Model model) {
+                model.clear();
+            }
+        });
     }
 }